@@ -0,0 +1,127 @@
+package reversi;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+
+import strategy.Group3;
+
+public class Benchmark {
+	/**
+	 * The number of random games played from the initial board to measure
+	 * playouts per second.
+	 */
+	private static final long PLAYOUTS = 2000000;
+
+	/**
+	 * The number of times the positions are searched with and without statistics
+	 * to measure what counting costs.
+	 */
+	private static final int STATISTICS_ROUNDS = 3;
+
+	/**
+	 * Measures how long {@link Group3} takes to search a fixed set of positions
+	 * to a fixed depth with 1, 2, 4 and 8 threads, and prints the speedup over a
+	 * single thread. Then measures how much slower a single thread searches with
+	 * {@link SearchStatistics} than without, and prints the statistics. Then
+	 * measures how many random games {@link Playout} plays
+	 * per second with the same numbers of threads. The optional arguments are the
+	 * search depth (default 7) and the number of positions (default 20).
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		int nPositions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int[] threadCounts = { 1, 2, 4, 8 };
+
+		List<Board> positions = positions(nPositions, 12345L);
+
+		//warm up the JIT, so that the single threaded run is not measured cold
+		for (Board board : positions) {
+			new Group3(16, 1).chooseSquare(board, Math.min(depth, 5));
+		}
+
+		System.out.println(String.format("%d positions searched to depth %d", positions.size(), depth));
+		long baseline = 0;
+		for (int threads : threadCounts) {
+			long total = 0;
+			for (Board board : positions) {
+				//a new strategy for each position, so that no thread count inherits a
+				//filled table, closed so that its helper threads do not pile up
+				try (Group3 strategy = new Group3(64, threads)) {
+					long start = System.nanoTime();
+					strategy.chooseSquare(board, depth);
+					total += System.nanoTime() - start;
+				}
+			}
+			if (threads == 1) {
+				baseline = total;
+			}
+			System.out.println(String.format("%d thread(s): %,d ms, speedup %.2f",
+					threads, TimeUnit.NANOSECONDS.toMillis(total), (double) baseline / total));
+		}
+
+		//with and without statistics in turn, so that both are measured alike
+		long counted = 0;
+		long uncounted = 0;
+		SearchStatistics statistics = new SearchStatistics();
+		for (int round = 0; round < STATISTICS_ROUNDS; ++round) {
+			for (Board board : positions) {
+				Group3 strategy = new Group3(64, 1);
+				strategy.setStatistics(null);
+				long start = System.nanoTime();
+				strategy.chooseSquare(board, depth);
+				uncounted += System.nanoTime() - start;
+
+				strategy = new Group3(64, 1);
+				strategy.setStatistics(statistics);
+				start = System.nanoTime();
+				strategy.chooseSquare(board, depth);
+				counted += System.nanoTime() - start;
+			}
+		}
+		System.out.println(String.format("1 thread with statistics: %,d ms, without: %,d ms, overhead %.1f%%",
+				TimeUnit.NANOSECONDS.toMillis(counted), TimeUnit.NANOSECONDS.toMillis(uncounted),
+				100.0 * (counted - uncounted) / uncounted));
+		System.out.println(statistics);
+
+		//random games from the initial board, after warming up the JIT
+		Board initial = new Board();
+		Playout.playAll(initial, PLAYOUTS / 10, 1, 1L);
+		System.out.println(String.format("%,d random games from the initial board", PLAYOUTS));
+		double baselineRate = 0;
+		for (int threads : threadCounts) {
+			long start = System.nanoTime();
+			Playout.playAll(initial, PLAYOUTS, threads, 1L);
+			double rate = PLAYOUTS * 1e9 / (System.nanoTime() - start);
+			if (threads == 1) {
+				baselineRate = rate;
+			}
+			System.out.println(String.format("%d thread(s): %,.0f playouts/s, speedup %.2f",
+					threads, rate, rate / baselineRate));
+		}
+	}
+
+	/**
+	 * Plays random games from the starting position and keeps the positions
+	 * reached after 10 to 29 moves. The same seed always gives the same positions.
+	 */
+	private static List<Board> positions(int n, long seed) {
+		Random random = new Random(seed);
+		List<Board> positions = Lists.newArrayList();
+		while (positions.size() < n) {
+			Board board = new Board().withoutHistory();
+			int moves = 10 + random.nextInt(20);
+			for (int i = 0; i < moves && !board.isComplete(); ++i) {
+				List<Square> possible = Lists.newArrayList(board.getCurrentPossibleSquares());
+				board = possible.isEmpty() ? board.pass() : board.play(possible.get(random.nextInt(possible.size())));
+			}
+			if (!board.isComplete() && !board.getCurrentPossibleSquares().isEmpty()) {
+				positions.add(board);
+			}
+		}
+		return positions;
+	}
+
+}
@@ -0,0 +1,151 @@
+package reversi;
+
+/**
+ * Static helpers for working with 8x8 Reversi positions packed into 64-bit
+ * masks. Square (row, column) is stored at bit {@code row * 8 + column}.
+ * Intended only for internal use.
+ */
+final class Bitboards {
+
+	/**
+	 * All squares except those in column 0.
+	 */
+	static final long NOT_COLUMN_0 = 0xfefefefefefefefeL;
+
+	/**
+	 * All squares except those in column 7.
+	 */
+	static final long NOT_COLUMN_7 = 0x7f7f7f7f7f7f7f7fL;
+
+	/**
+	 * The bit shift for one step in each of the 8 directions.
+	 */
+	private static final int[] SHIFTS = { 1, 9, 8, 7, -1, -9, -8, -7 };
+
+	/**
+	 * The mask that removes squares which wrapped around the board edge after a
+	 * shift in the corresponding direction of {@link #SHIFTS}.
+	 */
+	private static final long[] MASKS = {
+			NOT_COLUMN_0, NOT_COLUMN_0, -1L, NOT_COLUMN_7,
+			NOT_COLUMN_7, NOT_COLUMN_7, -1L, NOT_COLUMN_0 };
+
+	private Bitboards() {
+	}
+
+	/**
+	 * @return The mask with only the bit for the given row and column set.
+	 */
+	static long bit(int row, int column) {
+		return 1L << (row * 8 + column);
+	}
+
+	/**
+	 * Shifts every square of the mask one step in a direction, dropping squares
+	 * that leave the board.
+	 */
+	private static long shift(long squares, int shift, long mask) {
+		return (shift > 0 ? squares << shift : squares >>> -shift) & mask;
+	}
+
+	/**
+	 * Parallel-prefix (Kogge-Stone) fill of the generator squares along one
+	 * direction through the propagator squares. The propagator must already be
+	 * masked against wrap-around for that direction.
+	 */
+	private static long fill(long generator, long propagator, int shift) {
+		if (shift > 0) {
+			generator |= propagator & (generator << shift);
+			propagator &= propagator << shift;
+			generator |= propagator & (generator << 2 * shift);
+			propagator &= propagator << 2 * shift;
+			generator |= propagator & (generator << 4 * shift);
+		} else {
+			shift = -shift;
+			generator |= propagator & (generator >>> shift);
+			propagator &= propagator >>> shift;
+			generator |= propagator & (generator >>> 2 * shift);
+			propagator &= propagator >>> 2 * shift;
+			generator |= propagator & (generator >>> 4 * shift);
+		}
+		return generator;
+	}
+
+	/**
+	 * @return The mask with the rows in reverse order: (row, column) moves to (7 -
+	 *         row, column).
+	 */
+	static long flipRows(long squares) {
+		return Long.reverseBytes(squares);
+	}
+
+	/**
+	 * @return The mask with the columns in reverse order: (row, column) moves to
+	 *         (row, 7 - column).
+	 */
+	static long flipColumns(long squares) {
+		squares = ((squares >>> 1) & 0x5555555555555555L) | ((squares & 0x5555555555555555L) << 1);
+		squares = ((squares >>> 2) & 0x3333333333333333L) | ((squares & 0x3333333333333333L) << 2);
+		return ((squares >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((squares & 0x0f0f0f0f0f0f0f0fL) << 4);
+	}
+
+	/**
+	 * @return The mask reflected in its main diagonal: (row, column) moves to
+	 *         (column, row).
+	 */
+	static long transpose(long squares) {
+		long t = 0x0f0f0f0f00000000L & (squares ^ (squares << 28));
+		squares ^= t ^ (t >>> 28);
+		t = 0x3333000033330000L & (squares ^ (squares << 14));
+		squares ^= t ^ (t >>> 14);
+		t = 0x5500550055005500L & (squares ^ (squares << 7));
+		return squares ^ t ^ (t >>> 7);
+	}
+
+	/**
+	 * @param player
+	 *          The discs of the player to move.
+	 * @param opponent
+	 *          The discs of the other player.
+	 * @return The empty squares where the player to move would capture at least
+	 *         one disc.
+	 */
+	static long moves(long player, long opponent) {
+		long empty = ~(player | opponent);
+		long moves = 0L;
+		for (int d = 0; d < 8; ++d) {
+			int shift = SHIFTS[d];
+			long mask = MASKS[d];
+			long propagator = opponent & mask;
+			long run = fill(shift(player, shift, mask) & propagator, propagator, shift);
+			moves |= shift(run, shift, mask) & empty;
+		}
+		return moves;
+	}
+
+	/**
+	 * @param player
+	 *          The discs of the player to move.
+	 * @param opponent
+	 *          The discs of the other player.
+	 * @param index
+	 *          The bit index of the empty square being played.
+	 * @return The opponent discs captured by playing at the given square. Zero if
+	 *         the play captures nothing.
+	 */
+	static long flips(long player, long opponent, int index) {
+		long move = 1L << index;
+		long flips = 0L;
+		for (int d = 0; d < 8; ++d) {
+			int shift = SHIFTS[d];
+			long mask = MASKS[d];
+			long propagator = opponent & mask;
+			long run = fill(shift(move, shift, mask) & propagator, propagator, shift);
+			if ((shift(run, shift, mask) & player) != 0L) {
+				flips |= run;
+			}
+		}
+		return flips;
+	}
+
+}
@@ -1,126 +1,125 @@
 package reversi;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 
-import org.pcollections.HashTreePMap;
-import org.pcollections.HashTreePSet;
-import org.pcollections.PMap;
 import org.pcollections.PSequence;
-import org.pcollections.PSet;
 import org.pcollections.TreePVector;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Ordering;
+import com.google.common.collect.ImmutableMap;
 
 /**
  * A single state of a Reversi board. It records which pieces have been played
  * so far by which players, which pieces have been captured, and who the next
  * player to play should be.
+ * <p>
+ * The pieces are kept as two 64-bit masks, one per player, where square (row,
+ * column) is stored at bit {@code row * 8 + column}. Possible moves and
+ * captures are computed with directional shift/mask scans over these masks.
+ * Possible moves, completeness and the winner are only computed when first
+ * asked for, and are then remembered by the board.
+ * <p>
+ * Each board also carries a 64-bit Zobrist key of its layout and current
+ * player, which is updated from the placed and captured pieces on every play
+ * and is used for {@link #equals(Object)} and {@link #hashCode()}.
+ * <p>
+ * Boards used only for searching ahead can skip recording the moves played on
+ * them, see {@link #withoutHistory()}.
  */
 public class Board {
-	private int size;
+	private static final int SIZE = 8;
+
 	private Player player;
-	private PMap<Square, Player> owners;
-	private PSequence<Move> moves;
-	private PMap<Square, PSet<Square>> possibleSquares;
-	private PMap<Player, Integer> playerSquareCounts;
+	private long black;
+	private long white;
+	private long key;
+	private PSequence<Move> moves; // null when the moves are not recorded
+	private int moveCount;
+	private long possibleSquares;
+	private long opponentPossibleSquares;
+	private boolean possibleSquaresKnown;
+	private boolean opponentPossibleSquaresKnown;
+	private boolean winnerKnown;
+	private Player winner;
+	private Map<Square, Player> owners;
+	private Map<Player, Integer> playerSquareCounts;
 
 	/**
 	 * Creates an 8x8 Reversi board with the standard initial configuration of
 	 * {@link Player#BLACK} and {@link Player#WHITE} pieces.
 	 */
 	public Board() {
-		this(8, Player.BLACK, TreePVector.<Move> empty(), getInitialOwners(8), getInitialPlayerSquareCounts());
+		this(Player.BLACK,
+				Bitboards.bit(3, 4) | Bitboards.bit(4, 3),
+				Bitboards.bit(3, 3) | Bitboards.bit(4, 4));
+	}
+
+	/**
+	 * Creates a board with the given layout and current player and no recorded
+	 * moves. Intended only for internal use.
+	 */
+	Board(Player player, long black, long white) {
+		this(player, black, white, Long.bitCount(black | white) - 4);
+	}
+
+	/**
+	 * Creates a board with the given layout, current player and number of moves
+	 * played so far, but no recorded moves. Intended only for internal use.
+	 */
+	Board(Player player, long black, long white, int moveCount) {
+		this(player, TreePVector.<Move> empty(), moveCount, black, white, Zobrist.key(black, white, player));
 	}
 
 	/**
 	 * Low-level constructor. Intended only for internal use.
 	 */
-	private Board(int size, Player player, PSequence<Move> moves, PMap<Square, Player> owners, PMap<Player, Integer> playerSquareCounts) {
-		this.size = size;
+	private Board(Player player, PSequence<Move> moves, int moveCount, long black, long white, long key) {
 		this.player = player;
 		this.moves = moves;
-		this.owners = owners;
-		this.possibleSquares = HashTreePMap.empty();
-		this.playerSquareCounts = playerSquareCounts;
-		// Determine the possible moves
-		Player opponent = this.player.opponent();
-		int[][] directions =
-				new int[][] { { 0, 1 }, { 1, 1 }, { 1, 0 }, { 1, -1 }, { 0, -1 }, { -1, -1 }, { -1, 0 },
-			{ -1, 1 } };
-			for (int row = 0; row < this.size; ++row) {
-				for (int column = 0; column < this.size; ++column) {
-					if (this.owners.get(new Square(row, column)) == null) {
-						PSet<Square> allCaptures = HashTreePSet.empty();
-						for (int[] direction : directions) {
-							int rowStep = direction[0];
-							int columnStep = direction[1];
-							int r = row + rowStep;
-							int c = column + columnStep;
-							PSet<Square> captures = HashTreePSet.empty();
-							if (this.hasOwner(r, c, opponent)) {
-								captures = captures.plus(new Square(r, c));
-								r += rowStep;
-								c += columnStep;
-								while (this.hasOwner(r, c, opponent)) {
-									captures = captures.plus(new Square(r, c));
-									r += rowStep;
-									c += columnStep;
-								}
-								if (this.hasOwner(r, c, this.player)) {
-									allCaptures = allCaptures.plusAll(captures);
-								}
-							}
-						}
-						if (!allCaptures.isEmpty()) {
-							this.possibleSquares = this.possibleSquares.plus(new Square(row, column), allCaptures);
-						}
-					}
-				}
-			}
+		this.moveCount = moveCount;
+		this.black = black;
+		this.white = white;
+		this.key = key;
 	}
 
 	/**
-	 * Utility method for simultaneously checking bounds and owner. Intended only
-	 * for internal use.
+	 * Utility method for determining the possible moves of the current player the
+	 * first time they are needed. Intended only for internal use.
 	 */
-	private boolean hasOwner(int row, int column, Player owner) {
-		return 0 <= row && row < this.size && 0 <= column && column < this.size
-				&& this.owners.get(new Square(row, column)) == owner;
+	private long possibleSquares() {
+		if (!this.possibleSquaresKnown) {
+			this.possibleSquares = Bitboards.moves(this.getDiscs(this.player), this.getDiscs(this.player.opponent()));
+			this.possibleSquaresKnown = true;
+		}
+		return this.possibleSquares;
 	}
 
 	/**
-	 * Utility method for generating the initial board configuration. Intended only
-	 * for internal use.
+	 * Utility method for determining the possible moves of the opponent of the
+	 * current player the first time they are needed. Intended only for internal
+	 * use.
 	 */
-	private static PMap<Square, Player> getInitialOwners(int size) {
-		PMap<Square, Player> owners = HashTreePMap.empty();
-		int mid = size / 2;
-		owners = owners.plus(new Square(mid - 1, mid - 1), Player.WHITE);
-		owners = owners.plus(new Square(mid - 1, mid), Player.BLACK);
-		owners = owners.plus(new Square(mid, mid - 1), Player.BLACK);
-		owners = owners.plus(new Square(mid, mid), Player.WHITE);
-		return owners;
-	}
-
-	private static PMap<Player, Integer> getInitialPlayerSquareCounts() {
-		return HashTreePMap.<Player, Integer> empty().plus(Player.BLACK, 2).plus(Player.WHITE, 2);
+	private long opponentPossibleSquares() {
+		if (!this.opponentPossibleSquaresKnown) {
+			this.opponentPossibleSquares = Bitboards.moves(this.getDiscs(this.player.opponent()), this.getDiscs(this.player));
+			this.opponentPossibleSquaresKnown = true;
+		}
+		return this.opponentPossibleSquares;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.size, this.owners);
+		return (int) (this.key ^ (this.key >>> 32));
 	}
 
 	@Override
 	public boolean equals(Object obj) {
 		if (obj instanceof Board) {
 			Board that = (Board) obj;
-			return this.size == that.size && Objects.equals(this.owners, that.owners);
+			return this.key == that.key && this.black == that.black && this.white == that.white
+					&& this.player == that.player;
 		}
 		return false;
 	}
@@ -128,12 +127,12 @@ public class Board {
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
-		for (int row = 0; row < this.size; ++row) {
-			for (int col = 0; col < this.size; ++col) {
-				Player owner = this.owners.get(new Square(row, col));
-				if (owner == Player.WHITE) {
+		for (int row = 0; row < SIZE; ++row) {
+			for (int col = 0; col < SIZE; ++col) {
+				long bit = Bitboards.bit(row, col);
+				if ((this.white & bit) != 0L) {
 					builder.append('W');
-				} else if (owner == Player.BLACK) {
+				} else if ((this.black & bit) != 0L) {
 					builder.append('B');
 				} else {
 					builder.append('_');
@@ -148,22 +147,150 @@ public class Board {
 	 * @return The number of rows (= the number of columns) in this Reversi board.
 	 */
 	public int size() {
-		return this.size;
+		return SIZE;
+	}
+
+	/**
+	 * @return The Zobrist key of this board: a 64-bit hash of the pieces on the
+	 *         board and of the player that gets to choose a square next.
+	 */
+	public long getZobristKey() {
+		return this.key;
 	}
 
 	/**
 	 * @return The moves made by the players so far. That is, each square where a
 	 *         piece has been placed along with the player who played the piece
-	 *         there.
+	 *         there. Empty for boards derived from {@link #withoutHistory()}.
 	 */
 	public List<Move> getMoves() {
-		return this.moves;
+		return this.moves == null ? Collections.<Move> emptyList() : this.moves;
+	}
+
+	/**
+	 * @return The number of moves, including passes, made by the players so far.
+	 *         Unlike the size of {@link #getMoves()}, this is also counted on
+	 *         boards that do not record their moves.
+	 */
+	public int getMoveCount() {
+		return this.moveCount;
+	}
+
+	/**
+	 * Creates a board for searching ahead from this one. The new board, and all
+	 * boards derived from it by {@link #play(Square)} and {@link #pass()}, do not
+	 * record the moves played, so playing on them does not grow a move history.
+	 *
+	 * @return A board with the same layout and current player as this one, whose
+	 *         {@link #getMoves()} is empty.
+	 */
+	public Board withoutHistory() {
+		if (this.moves == null) {
+			return this;
+		}
+		Board board = new Board(this.player, null, this.moveCount, this.black, this.white, this.key);
+		board.possibleSquares = this.possibleSquares;
+		board.possibleSquaresKnown = this.possibleSquaresKnown;
+		board.opponentPossibleSquares = this.opponentPossibleSquares;
+		board.opponentPossibleSquaresKnown = this.opponentPossibleSquaresKnown;
+		return board;
+	}
+
+	/**
+	 * Rotates or reflects this board.
+	 *
+	 * @param symmetry
+	 *          The rotation or reflection to apply.
+	 * @return A board with every piece moved by the symmetry, the same current
+	 *         player, and the recorded moves (if any) moved the same way.
+	 */
+	public Board transform(Symmetry symmetry) {
+		if (symmetry == Symmetry.IDENTITY) {
+			return this;
+		}
+		long newBlack = symmetry.apply(this.black);
+		long newWhite = symmetry.apply(this.white);
+		PSequence<Move> newMoves = null;
+		if (this.moves != null) {
+			newMoves = TreePVector.empty();
+			for (Move move : this.moves) {
+				newMoves = newMoves.plus(Move.of(symmetry.apply(move.getSquare()), move.getPlayer()));
+			}
+		}
+		return new Board(this.player, newMoves, this.moveCount, newBlack, newWhite,
+				Zobrist.key(newBlack, newWhite, this.player));
+	}
+
+	/**
+	 * Finds the canonical form of this board: of the 8 rotations and reflections
+	 * of the board, the one with the smallest {@link Player#BLACK} mask (compared
+	 * as unsigned numbers), breaking ties by the smallest {@link Player#WHITE}
+	 * mask. Boards that are rotations or reflections of each other have the same
+	 * canonical form.
+	 *
+	 * @return The symmetry that turns this board into its canonical form.
+	 */
+	public Symmetry getCanonicalSymmetry() {
+		Symmetry best = Symmetry.IDENTITY;
+		long bestBlack = this.black;
+		long bestWhite = this.white;
+		for (Symmetry symmetry : Symmetry.values()) {
+			long newBlack = symmetry.apply(this.black);
+			int order = Long.compareUnsigned(newBlack, bestBlack);
+			if (order < 0 || order == 0 && Long.compareUnsigned(symmetry.apply(this.white), bestWhite) < 0) {
+				best = symmetry;
+				bestBlack = newBlack;
+				bestWhite = symmetry.apply(this.white);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return The canonical form of this board, that is
+	 *         {@code transform(getCanonicalSymmetry())}.
+	 */
+	public Board getCanonicalBoard() {
+		return this.transform(this.getCanonicalSymmetry());
+	}
+
+	/**
+	 * @return The Zobrist key of the canonical form of this board. Equal for all
+	 *         rotations and reflections of the board, so suitable for keying
+	 *         caches that should treat them as the same position.
+	 */
+	public long getCanonicalKey() {
+		Symmetry symmetry = this.getCanonicalSymmetry();
+		return symmetry == Symmetry.IDENTITY
+				? this.key
+				: Zobrist.key(symmetry.apply(this.black), symmetry.apply(this.white), this.player);
+	}
+
+	/**
+	 * Utility method for recording a move, unless moves are not being recorded.
+	 * Intended only for internal use.
+	 */
+	private PSequence<Move> plusMove(Square square) {
+		return this.moves == null ? null : this.moves.plus(Move.of(square, this.player));
+	}
+
+	/**
+	 * @param owner
+	 *          A player.
+	 * @return The squares occupied by the given player, as a mask where square
+	 *         (row, column) is bit {@code row * 8 + column}.
+	 */
+	public long getDiscs(Player owner) {
+		return owner == Player.BLACK ? this.black : this.white;
 	}
 
 	/**
 	 * @return A mapping from squares to the players currently occupying them.
 	 */
 	public Map<Square, Player> getSquareOwners() {
+		if (this.owners == null) {
+			this.owners = new SquareOwnerMap(this.black, this.white);
+		}
 		return this.owners;
 	}
 
@@ -171,6 +298,11 @@ public class Board {
 	 * @return The count of squares currently occupied by each player.
 	 */
 	public Map<Player, Integer> getPlayerSquareCounts() {
+		if (this.playerSquareCounts == null) {
+			this.playerSquareCounts = ImmutableMap.of(
+					Player.BLACK, Long.bitCount(this.black),
+					Player.WHITE, Long.bitCount(this.white));
+		}
 		return this.playerSquareCounts;
 	}
 
@@ -179,7 +311,7 @@ public class Board {
 	 *         otherwise.
 	 */
 	public boolean isComplete() {
-		return this.possibleSquares.isEmpty() && this.pass().possibleSquares.isEmpty();
+		return this.possibleSquares() == 0L && this.opponentPossibleSquares() == 0L;
 	}
 
 	/**
@@ -190,16 +322,15 @@ public class Board {
 		if (!this.isComplete()) {
 			throw new IllegalStateException("getWinner cannot be called until the game is complete");
 		}
-		Ordering<Player> bySquares = Ordering.natural().onResultOf(new Function<Player, Integer>() {
-			@Override
-			public Integer apply(Player input) {
-				return getPlayerSquareCounts().get(input);
+		if (!this.winnerKnown) {
+			int blackCount = Long.bitCount(this.black);
+			int whiteCount = Long.bitCount(this.white);
+			if (blackCount != whiteCount) {
+				this.winner = blackCount > whiteCount ? Player.BLACK : Player.WHITE;
 			}
-		});
-		Player winner = bySquares.max(Arrays.asList(Player.values()));
-		return this.playerSquareCounts.get(winner) == this.playerSquareCounts.get(winner.opponent())
-				? null
-						: winner;
+			this.winnerKnown = true;
+		}
+		return this.winner;
 	}
 
 	/**
@@ -213,12 +344,20 @@ public class Board {
 	 * @return The possible valid moves that the current player may choose from.
 	 */
 	public Set<Square> getCurrentPossibleSquares() {
-		return this.possibleSquares.keySet();
+		return new SquareSet(this.possibleSquares());
+	}
+
+	/**
+	 * @return The squares the opponent of the current player could play if it were
+	 *         their turn instead.
+	 */
+	public Set<Square> getOpponentPossibleSquares() {
+		return new SquareSet(this.opponentPossibleSquares());
 	}
 
 	/**
 	 * Places a game piece for the current player at the given square.
-	 * 
+	 *
 	 * @param square
 	 *          The square where the current player would like to place their piece.
 	 *          Must be a valid play: there must not already be a piece there, and
@@ -229,46 +368,54 @@ public class Board {
 	 *         current player now set to the opponent.
 	 */
 	public Board play(Square square) {
-		Player existingPlayer = this.owners.get(square);
+		Player existingPlayer = this.getSquareOwners().get(square);
 		if (existingPlayer != null) {
 			String message = "A %s piece already exists at %s";
 			throw new IllegalArgumentException(String.format(message, existingPlayer, square));
 		}
-		PSet<Square> captures = this.possibleSquares.get(square);
-		if (captures == null) {
-			String message = "%s will not capture any pieces if placed at (%d,%d)";
+		long bit = SquareSet.bitOf(square);
+		if ((this.possibleSquares() & bit) == 0L) {
+			String message = "%s will not capture any pieces if placed at %s";
 			throw new IllegalArgumentException(String.format(message, this.player, square));
 		}
-		PSequence<Move> newMoves = this.moves.plus(new Move(square, this.player));
-		PMap<Square, Player> newOwners = this.owners.plus(square, this.player);
-		for (Square capture : captures) {
-			newOwners = newOwners.plus(capture, this.player);
-		}
 		Player opponent = this.player.opponent();
-		int playerSquareCount = this.playerSquareCounts.get(this.player) + captures.size() + 1;
-		int opponentSquareCount = this.playerSquareCounts.get(opponent) - captures.size();
-		PMap<Player, Integer> newPlayerSquareCounts = this.playerSquareCounts;
-		newPlayerSquareCounts = newPlayerSquareCounts.plus(this.player, playerSquareCount);
-		newPlayerSquareCounts = newPlayerSquareCounts.plus(opponent, opponentSquareCount);
-		return new Board(this.size, opponent, newMoves, newOwners, newPlayerSquareCounts);
+		long mine = this.getDiscs(this.player);
+		long theirs = this.getDiscs(opponent);
+		int index = Long.numberOfTrailingZeros(bit);
+		long captures = Bitboards.flips(mine, theirs, index);
+		mine |= bit | captures;
+		theirs ^= captures;
+		PSequence<Move> newMoves = this.plusMove(square);
+		long newKey = this.key ^ Zobrist.move(this.player, index, captures);
+		return this.player == Player.BLACK
+				? new Board(opponent, newMoves, this.moveCount + 1, mine, theirs, newKey)
+				: new Board(opponent, newMoves, this.moveCount + 1, theirs, mine, newKey);
 	}
 
 	/**
 	 * Passes the current player's turn. Only valid when there are no possible
 	 * capturing moves for the current player.
-	 * 
+	 *
 	 * @return A new board with the same layout as the current one, but with the
 	 *         current player now set to the opponent.
 	 */
 	public Board pass() {
-		Set<Square> validNextMoves = this.getCurrentPossibleSquares();
-		if (!validNextMoves.isEmpty()) {
+		if (this.possibleSquares() != 0L) {
 			String message = "%s cannot pass since there are valid moves: %s";
-			throw new IllegalArgumentException(String.format(message, this.player, validNextMoves));
+			throw new IllegalArgumentException(String.format(message, this.player, this.getCurrentPossibleSquares()));
 		}
 		Player opponent = this.player.opponent();
-		PSequence<Move> newMoves = this.moves.plus(new Move(Square.PASS, this.player));
-		return new Board(this.size, opponent, newMoves, this.owners, this.playerSquareCounts);
+		PSequence<Move> newMoves = this.plusMove(Square.PASS);
+		Board passed = new Board(opponent, newMoves, this.moveCount + 1, this.black, this.white,
+				this.key ^ Zobrist.WHITE_TO_MOVE);
+		// The layout is unchanged, so the possible moves simply swap sides
+		passed.opponentPossibleSquares = 0L;
+		passed.opponentPossibleSquaresKnown = true;
+		if (this.opponentPossibleSquaresKnown) {
+			passed.possibleSquares = this.opponentPossibleSquares;
+			passed.possibleSquaresKnown = true;
+		}
+		return passed;
 	}
 
 }
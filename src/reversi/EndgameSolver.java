@@ -0,0 +1,444 @@
+package reversi;
+
+/**
+ * Finds the perfect move near the end of a game by searching every line of play
+ * to the end. It either finds the exact final disc differential or, at lower
+ * cost, only whether the game is won, lost or drawn.
+ * <p>
+ * The final disc differential counts empty squares left at the end of the game
+ * for the winner. Scores are always from the point of view of the player to
+ * move.
+ * <p>
+ * The solver works on pairs of masks, the discs of the player to move and of
+ * their opponent, and allocates nothing while searching. It tries moves in
+ * odd regions of the board first and, when many squares are empty, tries the
+ * moves that leave the opponent the fewest replies first. Results are kept in
+ * a transposition table of its own. The last four empty squares are solved
+ * without generating moves.
+ */
+public class EndgameSolver {
+
+	/**
+	 * Higher than any final disc differential.
+	 */
+	private static final int MAX_SCORE = 65;
+
+	/**
+	 * At most this many empty squares, moves are found by trying every empty
+	 * square.
+	 */
+	private static final int LAST_EMPTIES = 4;
+
+	/**
+	 * At most this many empty squares, positions are neither stored in the table
+	 * nor ordered by mobility, since that costs more than it saves.
+	 */
+	private static final int SHALLOW_EMPTIES = 6;
+
+	/**
+	 * The four 4x4 quadrants of the board, the regions used for parity ordering.
+	 */
+	private static final long[] QUADRANTS = {
+			0x000000000f0f0f0fL, 0x00000000f0f0f0f0L,
+			0x0f0f0f0f00000000L, 0xf0f0f0f000000000L };
+
+	private static final long CORNERS = 0x8100000000000081L;
+
+	private final TranspositionTable table;
+
+	//the moves at each number of empty squares, how early to try them, and what they capture
+	private final int[][] moveLists = new int[64][64];
+	private final int[][] moveOrders = new int[64][64];
+	private final long[][] moveFlips = new long[64][64];
+
+	//the position being solved
+	private long rootPlayer;
+	private long rootOpponent;
+	private int rootMove;
+	private int score;
+
+	//stop searching at this System.nanoTime(), and check it every few nodes
+	private long stopTime;
+	private int nodes;
+
+	/**
+	 * Creates a solver.
+	 *
+	 * @param tableMegabytes
+	 *          The memory budget of the solver's transposition table.
+	 */
+	public EndgameSolver(int tableMegabytes) {
+		this.table = new TranspositionTable(tableMegabytes);
+	}
+
+	/**
+	 * Solves a position.
+	 *
+	 * @param board
+	 *          The position to solve.
+	 * @param winLossDraw
+	 *          True to only find out whether the game is won, lost or drawn, which
+	 *          is faster than finding the exact disc differential.
+	 * @param deadline
+	 *          The System.nanoTime() by which to give up.
+	 * @return The best square for the current player, {@link Square#PASS} if they
+	 *         have to pass, or null if the position could not be solved in time.
+	 *         {@link #getScore()} then gives its score.
+	 */
+	public synchronized Square solve(Board board, boolean winLossDraw, long deadline) {
+		this.table.newSearch();
+		this.rootPlayer = board.getDiscs(board.getCurrentPlayer());
+		this.rootOpponent = board.getDiscs(board.getCurrentPlayer().opponent());
+		this.rootMove = TranspositionTable.NO_MOVE;
+		this.stopTime = deadline;
+		int bound = winLossDraw ? 1 : MAX_SCORE;
+		try {
+			this.score = this.search(this.rootPlayer, this.rootOpponent, -bound, bound);
+		} catch (SearchTimeout e) {
+			return null;
+		}
+		return this.rootMove == TranspositionTable.NO_MOVE ? Square.PASS : Square.fromIndex(this.rootMove);
+	}
+
+	/**
+	 * @return The score of the position last solved for the player to move: the
+	 *         final disc differential if it was solved exactly, otherwise only
+	 *         positive for a win, negative for a loss and zero for a draw.
+	 */
+	public synchronized int getScore() {
+		return this.score;
+	}
+
+	/**
+	 * Utility method for choosing how to search a position by the number of empty
+	 * squares. Intended only for internal use.
+	 */
+	private int negaMax(long player, long opponent, int alpha, int beta) {
+		int empties = 64 - Long.bitCount(player | opponent);
+		if (empties <= LAST_EMPTIES) {
+			return this.searchLast(player, opponent, alpha, beta, false);
+		}
+		if (empties <= SHALLOW_EMPTIES) {
+			return this.searchShallow(player, opponent, alpha, beta);
+		}
+		return this.search(player, opponent, alpha, beta);
+	}
+
+	/**
+	 * Principal variation search of a position with many empty squares, using the
+	 * transposition table and trying the moves that leave the opponent the fewest
+	 * replies first.
+	 */
+	private int search(long player, long opponent, int alpha, int beta) {
+		this.checkTime();
+		long moves = Bitboards.moves(player, opponent);
+		if (moves == 0L) {
+			if (Bitboards.moves(opponent, player) == 0L) {
+				return finalScore(player, opponent);
+			}
+			return -this.negaMax(opponent, player, -beta, -alpha);
+		}
+
+		boolean root = player == this.rootPlayer && opponent == this.rootOpponent;
+		if (!root) {
+			int cutoff = stabilityCutoff(player, opponent, alpha);
+			if (cutoff <= alpha) {
+				return cutoff;
+			}
+		}
+
+		int empties = 64 - Long.bitCount(player | opponent);
+		long key = hash(player, opponent);
+		long entry = this.table.probe(key);
+		int hashMove = TranspositionTable.NO_MOVE;
+		if (entry != 0L) {
+			hashMove = TranspositionTable.getMove(entry);
+			if (!root && TranspositionTable.getDepth(entry) >= empties) {
+				int stored = TranspositionTable.getScore(entry);
+				int bound = TranspositionTable.getBound(entry);
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER_BOUND && stored >= beta)
+						|| (bound == TranspositionTable.UPPER_BOUND && stored <= alpha)) {
+					return stored;
+				}
+			}
+		}
+
+		int count = this.orderMoves(player, opponent, moves, hashMove, empties);
+		int originalAlpha = alpha;
+		int bestScore = -MAX_SCORE;
+		int bestMove = TranspositionTable.NO_MOVE;
+		for (int i = 0; i < count; ++i) {
+			int move = this.nextMove(empties, i, count);
+			long flips = this.moveFlips[empties][i];
+			long next = opponent ^ flips;
+			long mover = player | flips | 1L << move;
+			int score;
+			if (i == 0) {
+				score = -this.negaMax(next, mover, -beta, -alpha);
+			} else {
+				score = -this.negaMax(next, mover, -alpha - 1, -alpha);
+				if (score > alpha && score < beta) {
+					score = -this.negaMax(next, mover, -beta, -alpha);
+				}
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+
+		if (root) {
+			this.rootMove = bestMove;
+		}
+		int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+				: bestScore >= beta ? TranspositionTable.LOWER_BOUND
+				: TranspositionTable.EXACT;
+		this.table.store(key, empties, bound, bestScore, bestMove);
+		return bestScore;
+	}
+
+	/**
+	 * Alpha-beta search of a position with few empty squares, trying the moves in
+	 * odd regions first.
+	 */
+	private int searchShallow(long player, long opponent, int alpha, int beta) {
+		this.checkTime();
+		long moves = Bitboards.moves(player, opponent);
+		if (moves == 0L) {
+			if (Bitboards.moves(opponent, player) == 0L) {
+				return finalScore(player, opponent);
+			}
+			return -this.negaMax(opponent, player, -beta, -alpha);
+		}
+
+		int cutoff = stabilityCutoff(player, opponent, alpha);
+		if (cutoff <= alpha) {
+			return cutoff;
+		}
+
+		long odd = oddRegions(~(player | opponent));
+		int bestScore = -MAX_SCORE;
+		for (int parity = 0; parity < 2; ++parity) {
+			for (long m = moves & (parity == 0 ? odd : ~odd); m != 0L; m &= m - 1) {
+				int move = Long.numberOfTrailingZeros(m);
+				long flips = Bitboards.flips(player, opponent, move);
+				int score = -this.negaMax(opponent ^ flips, player | flips | 1L << move, -beta, -alpha);
+				if (score > bestScore) {
+					bestScore = score;
+					if (score > alpha) {
+						alpha = score;
+						if (alpha >= beta) {
+							return bestScore;
+						}
+					}
+				}
+			}
+		}
+		return bestScore;
+	}
+
+	/**
+	 * Alpha-beta search of a position with at most {@link #LAST_EMPTIES} empty
+	 * squares. Rather than generating moves, every empty square is tried, those in
+	 * odd regions first.
+	 *
+	 * @param passed
+	 *          True if the opponent has just passed.
+	 */
+	private int searchLast(long player, long opponent, int alpha, int beta, boolean passed) {
+		long empty = ~(player | opponent);
+		if (empty == 0L) {
+			return finalScore(player, opponent);
+		}
+		if ((empty & empty - 1) == 0L) {
+			return lastScore(player, opponent, Long.numberOfTrailingZeros(empty));
+		}
+		++this.nodes;
+
+		long odd = oddRegions(empty);
+		int bestScore = -MAX_SCORE;
+		boolean moved = false;
+		for (int parity = 0; parity < 2; ++parity) {
+			for (long e = empty & (parity == 0 ? odd : ~odd); e != 0L; e &= e - 1) {
+				int move = Long.numberOfTrailingZeros(e);
+				long flips = Bitboards.flips(player, opponent, move);
+				if (flips == 0L) {
+					continue;
+				}
+				moved = true;
+				int score = -this.searchLast(opponent ^ flips, player | flips | 1L << move, -beta, -alpha, false);
+				if (score > bestScore) {
+					bestScore = score;
+					if (score > alpha) {
+						alpha = score;
+						if (alpha >= beta) {
+							return bestScore;
+						}
+					}
+				}
+			}
+		}
+		if (!moved) {
+			return passed ? finalScore(player, opponent) : -this.searchLast(opponent, player, -beta, -alpha, true);
+		}
+		return bestScore;
+	}
+
+	/**
+	 * Utility method for listing the moves of a position with how early each
+	 * should be tried: the move the transposition table remembers, then the moves
+	 * that leave the opponent the fewest replies, corners counting double. Moves
+	 * into odd regions and corners break ties. Intended only for internal use.
+	 *
+	 * @return The number of moves.
+	 */
+	private int orderMoves(long player, long opponent, long moves, int hashMove, int empties) {
+		int[] list = this.moveLists[empties];
+		int[] order = this.moveOrders[empties];
+		long[] flipList = this.moveFlips[empties];
+		long odd = oddRegions(~(player | opponent));
+		int count = 0;
+		for (; moves != 0L; moves &= moves - 1) {
+			int move = Long.numberOfTrailingZeros(moves);
+			long bit = 1L << move;
+			long flips = Bitboards.flips(player, opponent, move);
+			list[count] = move;
+			flipList[count] = flips;
+			if (move == hashMove) {
+				order[count] = Integer.MAX_VALUE;
+			} else {
+				long replies = Bitboards.moves(opponent ^ flips, player | flips | bit);
+				int mobility = Long.bitCount(replies) + Long.bitCount(replies & CORNERS);
+				order[count] = -mobility * 4 + ((bit & odd) != 0L ? 2 : 0) + ((bit & CORNERS) != 0L ? 1 : 0);
+			}
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Utility method for finding the best of the moves not tried yet, and swapping
+	 * it into place. Intended only for internal use.
+	 *
+	 * @return The index of the square to play next.
+	 */
+	private int nextMove(int empties, int i, int count) {
+		int[] list = this.moveLists[empties];
+		int[] order = this.moveOrders[empties];
+		long[] flipList = this.moveFlips[empties];
+		int best = i;
+		for (int j = i + 1; j < count; ++j) {
+			if (order[j] > order[best]) {
+				best = j;
+			}
+		}
+		int move = list[best];
+		list[best] = list[i];
+		list[i] = move;
+		int value = order[best];
+		order[best] = order[i];
+		order[i] = value;
+		long flips = flipList[best];
+		flipList[best] = flipList[i];
+		flipList[i] = flips;
+		return move;
+	}
+
+	/**
+	 * Utility method for giving up the search once time has run out. Intended only
+	 * for internal use.
+	 */
+	private void checkTime() {
+		if ((++this.nodes & 1023) == 0 && System.nanoTime() > this.stopTime) {
+			throw TIMEOUT;
+		}
+	}
+
+	/**
+	 * @return The final score of a position with one empty square, given its
+	 *         index.
+	 */
+	private static int lastScore(long player, long opponent, int square) {
+		//with 63 discs on the board, the differential is odd and never a draw
+		int diff = 2 * Long.bitCount(player) - 63;
+		long flips = Bitboards.flips(player, opponent, square);
+		if (flips != 0L) {
+			return diff + 1 + 2 * Long.bitCount(flips);
+		}
+		flips = Bitboards.flips(opponent, player, square);
+		if (flips != 0L) {
+			return diff - 1 - 2 * Long.bitCount(flips);
+		}
+		return diff > 0 ? diff + 1 : diff - 1;
+	}
+
+	/**
+	 * @return The final score of a finished game, counting the empty squares for
+	 *         the winner.
+	 */
+	private static int finalScore(long player, long opponent) {
+		int discs = Long.bitCount(player);
+		int opponentDiscs = Long.bitCount(opponent);
+		int diff = discs - opponentDiscs;
+		int empties = 64 - discs - opponentDiscs;
+		return diff > 0 ? diff + empties : diff < 0 ? diff - empties : 0;
+	}
+
+	/**
+	 * @return An upper bound on the final score if it is no greater than alpha,
+	 *         otherwise a number greater than alpha. The player can at best end
+	 *         with every square but the opponent's stable discs.
+	 */
+	private static int stabilityCutoff(long player, long opponent, int alpha) {
+		// Only worth finding the stable discs if they could give a cutoff at all, and
+		// in practice only when alpha is high for the number of empty squares
+		int empties = 64 - Long.bitCount(player | opponent);
+		if (alpha < 2 * empties || alpha < 64 - 2 * Long.bitCount(opponent)) {
+			return MAX_SCORE;
+		}
+		return 64 - 2 * Long.bitCount(Stability.getStableDiscs(opponent, player));
+	}
+
+	/**
+	 * @return The empty squares in quadrants with an odd number of empty squares.
+	 */
+	private static long oddRegions(long empty) {
+		long odd = 0L;
+		for (long quadrant : QUADRANTS) {
+			if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+				odd |= quadrant;
+			}
+		}
+		return odd & empty;
+	}
+
+	/**
+	 * @return A key for the transposition table, mixing the discs of both players.
+	 */
+	private static long hash(long player, long opponent) {
+		long h = player * 0x9e3779b97f4a7c15L ^ Long.rotateLeft(opponent * 0xc2b2ae3d27d4eb4fL, 31);
+		h = (h ^ (h >>> 29)) * 0xbf58476d1ce4e5b9L;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * Thrown to abandon a search that has run out of time.
+	 */
+	private static class SearchTimeout extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private SearchTimeout() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final SearchTimeout TIMEOUT = new SearchTimeout();
+
+}
@@ -0,0 +1,23 @@
+package reversi;
+
+/**
+ * Scores positions for a {@link SearchEngine}, which looks ahead from the
+ * current position and scores the positions it reaches this way. Finished games
+ * are scored by the engine itself whenever it has found the moves of the
+ * position anyway; at the end of the search it only checks for a full board,
+ * so a game that ended with empty squares may be scored by the evaluator.
+ */
+public interface Evaluator {
+  /**
+   * Estimates how good a position is for the player to move. Implementations
+   * must not keep any state between calls that depends on the positions seen, as
+   * several threads may call them at the same time.
+   * 
+   * @param board
+   *          A position that is not full. It must not be changed.
+   * @return The score of the position for its current player, higher meaning
+   *         better. Must lie strictly between -{@link SearchEngine#WIN_SCORE} and
+   *         {@link SearchEngine#WIN_SCORE}.
+   */
+  public int evaluate(SearchBoard board);
+}
@@ -0,0 +1,284 @@
+package reversi;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Read access to an append-only file of finished games written by
+ * {@link GameArchiveWriter}.
+ * <p>
+ * The archive file holds one record per game, all numbers little-endian:
+ * <ul>
+ * <li>2 bytes: the length of the rest of the record</li>
+ * <li>1 byte: the winner in the low two bits (0 draw, 1 black, 2 white) and the
+ * player that timed out in the next two bits (0 none, 1 black, 2 white)</li>
+ * <li>4 + 4 bytes: the thinking time in milliseconds of black and white</li>
+ * <li>1 + n bytes, twice: the UTF-8 names of the black and white strategies</li>
+ * <li>1 + n bytes: the moves, one byte each holding {@link Square#getIndex()},
+ * or 64 for a pass</li>
+ * </ul>
+ * A side index file, named after the archive file with {@code .idx} appended,
+ * holds the 8 byte offset of each record. Both files are memory-mapped, so any
+ * game can be read without scanning the games before it, and
+ * {@link #iterator()} streams through all games in order without mapping.
+ */
+public class GameArchive implements Closeable, Iterable<GameRecord> {
+
+	/**
+	 * The byte used for a pass in the moves of a record.
+	 */
+	static final int PASS = 64;
+
+	/**
+	 * The largest possible record, including its length.
+	 */
+	static final int MAX_RECORD_BYTES = 2 + 1 + 8 + 2 * (1 + 255) + 1 + 255;
+
+	private static final long SEGMENT_BYTES = 1L << 30;
+	private static final int READ_BUFFER_BYTES = 1 << 20;
+
+	private final Path path;
+	private final FileChannel data;
+	private final FileChannel index;
+	private final long dataBytes;
+	private final long size;
+	private final MappedByteBuffer offsets;
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Opens an archive for reading. Games appended after opening are not seen.
+	 * 
+	 * @param path
+	 *          The archive file. Its index file must be next to it.
+	 * @throws IOException
+	 *           If either file cannot be opened or mapped.
+	 */
+	public GameArchive(Path path) throws IOException {
+		this.path = path;
+		this.data = FileChannel.open(path, StandardOpenOption.READ);
+		this.index = FileChannel.open(indexPath(path), StandardOpenOption.READ);
+		this.dataBytes = this.data.size();
+		long indexBytes = this.index.size() - this.index.size() % 8;
+		if (indexBytes > Integer.MAX_VALUE) {
+			throw new IOException("Index of " + path + " is too large to map");
+		}
+		this.size = indexBytes / 8;
+		this.offsets = this.index.map(FileChannel.MapMode.READ_ONLY, 0, indexBytes);
+		this.offsets.order(ByteOrder.LITTLE_ENDIAN);
+		this.segments = new MappedByteBuffer[(int) ((this.dataBytes + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+	}
+
+	/**
+	 * @param path
+	 *          An archive file.
+	 * @return The index file of the archive.
+	 */
+	static Path indexPath(Path path) {
+		return Paths.get(path.toString() + ".idx");
+	}
+
+	/**
+	 * @return The number of games in the archive.
+	 */
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * Reads one game.
+	 * 
+	 * @param game
+	 *          The number of the game, counting from 0 in the order the games were
+	 *          appended.
+	 * @return The game.
+	 * @throws IOException
+	 *           If the game cannot be read or its record is not valid.
+	 */
+	public GameRecord get(long game) throws IOException {
+		if (game < 0 || game >= this.size) {
+			throw new IndexOutOfBoundsException("Game " + game + " is not in an archive of " + this.size);
+		}
+		long offset = this.offsets.getLong((int) (game * 8));
+		if (offset < 0 || offset >= this.dataBytes) {
+			throw new IOException("Bad offset " + offset + " for game " + game + " in " + this.path);
+		}
+		// Segments overlap by a whole record, so the record lies inside one segment
+		int segment = (int) (offset / SEGMENT_BYTES);
+		ByteBuffer buffer = this.segment(segment).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position((int) (offset - segment * SEGMENT_BYTES));
+		return decode(buffer);
+	}
+
+	/**
+	 * Utility method for mapping a segment of the archive file the first time it
+	 * is needed. Intended only for internal use.
+	 */
+	private synchronized MappedByteBuffer segment(int segment) throws IOException {
+		if (this.segments[segment] == null) {
+			long start = segment * SEGMENT_BYTES;
+			long length = Math.min(SEGMENT_BYTES + MAX_RECORD_BYTES, this.dataBytes - start);
+			this.segments[segment] = this.data.map(FileChannel.MapMode.READ_ONLY, start, length);
+		}
+		return this.segments[segment];
+	}
+
+	/**
+	 * Streams through all games in the order they were appended, reading the
+	 * archive file sequentially. The iterator throws {@link UncheckedIOException}
+	 * if the file cannot be read.
+	 */
+	@Override
+	public Iterator<GameRecord> iterator() {
+		return new Iterator<GameRecord>() {
+			private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			private long position = 0;
+
+			{
+				this.buffer.flip();
+			}
+
+			@Override
+			public boolean hasNext() {
+				return this.buffer.hasRemaining() || this.position < GameArchive.this.dataBytes;
+			}
+
+			@Override
+			public GameRecord next() {
+				if (!this.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				try {
+					this.fill(2);
+					int length = this.buffer.getShort(this.buffer.position()) & 0xffff;
+					this.fill(2 + length);
+					return decode(this.buffer);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			private void fill(int bytes) throws IOException {
+				if (this.buffer.remaining() >= bytes) {
+					return;
+				}
+				this.buffer.compact();
+				while (this.buffer.position() < bytes) {
+					// Stop at the size the archive had when it was opened
+					long left = GameArchive.this.dataBytes - this.position;
+					if (left < this.buffer.remaining()) {
+						this.buffer.limit(this.buffer.position() + (int) left);
+					}
+					int read = left == 0 ? -1 : GameArchive.this.data.read(this.buffer, this.position);
+					if (read < 0) {
+						throw new EOFException("Archive " + GameArchive.this.path + " ends part way through a game");
+					}
+					this.position += read;
+				}
+				this.buffer.flip();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.data.close();
+		} finally {
+			this.index.close();
+		}
+	}
+
+	/**
+	 * Writes the record of a game at the current position of the buffer. Intended
+	 * only for internal use.
+	 */
+	static void encode(GameRecord record, ByteBuffer buffer) {
+		// Check before writing anything, so that a record that cannot be archived
+		// leaves the buffer as it was
+		List<Move> moves = record.getMoves();
+		if (moves.size() > 255) {
+			throw new IllegalArgumentException("Too many moves to archive: " + moves.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		int start = buffer.position();
+		buffer.putShort((short) 0);
+		buffer.put((byte) (code(record.getWinner()) | code(record.getTimedOut()) << 2));
+		buffer.putInt((int) Math.min(record.getThinkingMillis(Player.BLACK), Integer.MAX_VALUE));
+		buffer.putInt((int) Math.min(record.getThinkingMillis(Player.WHITE), Integer.MAX_VALUE));
+		putName(record.getStrategy(Player.BLACK), buffer);
+		putName(record.getStrategy(Player.WHITE), buffer);
+		buffer.put((byte) moves.size());
+		for (Move move : moves) {
+			int index = move.getSquare().getIndex();
+			buffer.put((byte) (index < 0 ? PASS : index));
+		}
+		buffer.putShort(start, (short) (buffer.position() - start - 2));
+	}
+
+	/**
+	 * Reads the record of a game from the current position of the buffer. Intended
+	 * only for internal use.
+	 */
+	static GameRecord decode(ByteBuffer buffer) throws IOException {
+		int length = buffer.getShort() & 0xffff;
+		int end = buffer.position() + length;
+		int result = buffer.get();
+		long blackMillis = buffer.getInt() & 0xffffffffL;
+		long whiteMillis = buffer.getInt() & 0xffffffffL;
+		String blackStrategy = getName(buffer);
+		String whiteStrategy = getName(buffer);
+		Square[] squares = new Square[buffer.get() & 0xff];
+		for (int i = 0; i < squares.length; ++i) {
+			int index = buffer.get();
+			if (index < 0 || index > PASS) {
+				throw new IOException("Archived game has a move at unknown square " + index);
+			}
+			squares[i] = index == PASS ? Square.PASS : Square.fromIndex(index);
+		}
+		if (buffer.position() != end) {
+			throw new IOException("Archived game does not match its length of " + length + " bytes");
+		}
+		return new GameRecord(blackStrategy, whiteStrategy, player(result & 3), player(result >> 2 & 3),
+				blackMillis, whiteMillis, GameRecord.toMoves(squares));
+	}
+
+	private static int code(Player player) {
+		return player == null ? 0 : player.ordinal() + 1;
+	}
+
+	private static Player player(int code) {
+		return code == 0 ? null : Player.values()[code - 1];
+	}
+
+	private static void putName(String name, ByteBuffer buffer) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, 255);
+		buffer.put((byte) length);
+		buffer.put(bytes, 0, length);
+	}
+
+	private static String getName(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.get() & 0xff];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,95 @@
+package reversi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends finished games to an archive that can be read with
+ * {@link GameArchive}. Games are buffered and written in blocks; the archive
+ * file is always written before the index entries that point into it. Safe to
+ * share between threads.
+ */
+public class GameArchiveWriter implements Closeable {
+
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final FileChannel data;
+	private final FileChannel index;
+	private final ByteBuffer dataBuffer;
+	private final ByteBuffer indexBuffer;
+	private long offset;
+
+	/**
+	 * Opens an archive for appending, creating it if it does not exist.
+	 * 
+	 * @param path
+	 *          The archive file. Its index file is written next to it.
+	 * @throws IOException
+	 *           If either file cannot be opened.
+	 */
+	public GameArchiveWriter(Path path) throws IOException {
+		this.data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		this.index = FileChannel.open(GameArchive.indexPath(path), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		this.offset = this.data.size();
+		this.dataBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		this.indexBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES / 8).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Appends one game to the archive.
+	 * 
+	 * @param record
+	 *          The game to append.
+	 * @throws IOException
+	 *           If the archive cannot be written.
+	 */
+	public synchronized void append(GameRecord record) throws IOException {
+		if (this.dataBuffer.remaining() < GameArchive.MAX_RECORD_BYTES || !this.indexBuffer.hasRemaining()) {
+			this.flush();
+		}
+		int start = this.dataBuffer.position();
+		GameArchive.encode(record, this.dataBuffer);
+		this.indexBuffer.putLong(this.offset);
+		this.offset += this.dataBuffer.position() - start;
+	}
+
+	/**
+	 * Writes all buffered games to the archive.
+	 * 
+	 * @throws IOException
+	 *           If the archive cannot be written.
+	 */
+	public synchronized void flush() throws IOException {
+		drain(this.dataBuffer, this.data);
+		drain(this.indexBuffer, this.index);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			this.flush();
+		} finally {
+			try {
+				this.data.close();
+			} finally {
+				this.index.close();
+			}
+		}
+	}
+
+	private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+}
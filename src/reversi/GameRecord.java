@@ -0,0 +1,135 @@
+package reversi;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A finished game of Reversi as stored in a {@link GameArchive}: the strategies
+ * that played it, its result, the time each strategy took and the moves
+ * played.
+ */
+public class GameRecord {
+
+	private String blackStrategy;
+	private String whiteStrategy;
+	private Player winner;
+	private Player timedOut;
+	private long blackMillis;
+	private long whiteMillis;
+	private List<Move> moves;
+
+	/**
+	 * Creates a record of a game.
+	 * 
+	 * @param blackStrategy
+	 *          The name of the strategy that played {@link Player#BLACK}.
+	 * @param whiteStrategy
+	 *          The name of the strategy that played {@link Player#WHITE}.
+	 * @param board
+	 *          The last board of the game. Its {@link Board#getMoves()} are the
+	 *          moves of the game.
+	 * @param timedOut
+	 *          The player whose strategy exceeded the allotted time and so lost the
+	 *          game, or null if the game was played to completion.
+	 * @param blackMillis
+	 *          The time in milliseconds taken by the black strategy.
+	 * @param whiteMillis
+	 *          The time in milliseconds taken by the white strategy.
+	 */
+	public GameRecord(String blackStrategy, String whiteStrategy, Board board, Player timedOut, long blackMillis,
+			long whiteMillis) {
+		this(blackStrategy, whiteStrategy,
+				timedOut != null ? timedOut.opponent() : board.getWinner(),
+				timedOut, blackMillis, whiteMillis, board.getMoves());
+	}
+
+	/**
+	 * Low-level constructor. Intended only for internal use.
+	 */
+	GameRecord(String blackStrategy, String whiteStrategy, Player winner, Player timedOut, long blackMillis,
+			long whiteMillis, List<Move> moves) {
+		this.blackStrategy = blackStrategy;
+		this.whiteStrategy = whiteStrategy;
+		this.winner = winner;
+		this.timedOut = timedOut;
+		this.blackMillis = blackMillis;
+		this.whiteMillis = whiteMillis;
+		this.moves = moves;
+	}
+
+	/**
+	 * @param player
+	 *          A player.
+	 * @return The name of the strategy that played the given player.
+	 */
+	public String getStrategy(Player player) {
+		return player == Player.BLACK ? this.blackStrategy : this.whiteStrategy;
+	}
+
+	/**
+	 * @return The winner of the game, or null for a draw.
+	 */
+	public Player getWinner() {
+		return this.winner;
+	}
+
+	/**
+	 * @return The player whose strategy exceeded the allotted time, or null if the
+	 *         game was played to completion.
+	 */
+	public Player getTimedOut() {
+		return this.timedOut;
+	}
+
+	/**
+	 * @param player
+	 *          A player.
+	 * @return The time in milliseconds taken by the strategy of the given player.
+	 */
+	public long getThinkingMillis(Player player) {
+		return player == Player.BLACK ? this.blackMillis : this.whiteMillis;
+	}
+
+	/**
+	 * @return The moves of the game, including passes, in the order they were
+	 *         played.
+	 */
+	public List<Move> getMoves() {
+		return this.moves;
+	}
+
+	/**
+	 * @return The last board of the game, rebuilt by playing its moves from the
+	 *         standard initial board.
+	 */
+	public Board replay() {
+		Board board = new Board();
+		for (Move move : this.moves) {
+			board = move.getSquare().equals(Square.PASS) ? board.pass() : board.play(move.getSquare());
+		}
+		return board;
+	}
+
+	@Override
+	public String toString() {
+		String message = "%s(%s vs %s, winner %s%s, %d moves)";
+		return String.format(message, this.getClass().getSimpleName(), this.blackStrategy, this.whiteStrategy,
+				this.winner, this.timedOut == null ? "" : " on time", this.moves.size());
+	}
+
+	/**
+	 * Utility method for turning decoded squares back into moves. Intended only
+	 * for internal use.
+	 */
+	static List<Move> toMoves(Square[] squares) {
+		Move[] moves = new Move[squares.length];
+		Player player = Player.BLACK;
+		for (int i = 0; i < squares.length; ++i) {
+			moves[i] = Move.of(squares[i], player);
+			player = player.opponent();
+		}
+		return Collections.unmodifiableList(Arrays.asList(moves));
+	}
+
+}
@@ -0,0 +1,20 @@
+package reversi;
+
+/**
+ * An evaluator whose scores are built from sums of square weights that a
+ * {@link SearchBoard} can keep up to date as moves are played and undone, so
+ * that scoring a position does not have to visit every disc.
+ */
+public interface IncrementalEvaluator extends Evaluator {
+  /**
+   * Lists the features a search board should keep the sums of for this
+   * evaluator. {@link #evaluate(SearchBoard)} reads feature i with
+   * {@link SearchBoard#getPlayerFeature(int)} and
+   * {@link SearchBoard#getOpponentFeature(int)} on boards created with these
+   * features, and computes it from scratch on boards without features.
+   * 
+   * @return The weight of each square, indexed by {@link Square#getIndex()},
+   *         for each feature.
+   */
+  public int[][] getFeatures();
+}
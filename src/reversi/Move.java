@@ -4,11 +4,32 @@ import java.util.Objects;
 
 /**
  * Represents the placement of a piece by a player at a square.
+ * <p>
+ * Prefer {@link #of(Square, Player)} to the constructor: it returns shared
+ * instances for the squares of an 8x8 board and for {@link Square#PASS}.
  */
 public class Move {
 
-  private Square square;
-  private Player player;
+  /**
+   * The shared instances for each player, by square index. The last index holds
+   * the passes.
+   */
+  private static final Move[][] MOVES = new Move[65][];
+
+  static {
+    Player[] players = Player.values();
+    for (int index = 0; index < MOVES.length; ++index) {
+      Square square = index < 64 ? Square.fromIndex(index) : Square.PASS;
+      MOVES[index] = new Move[players.length];
+      for (Player player : players) {
+        MOVES[index][player.ordinal()] = new Move(square, player);
+      }
+    }
+  }
+
+  private final Square square;
+  private final Player player;
+  private final int hash;
 
   /**
    * Creates a new Move.
@@ -21,6 +42,30 @@ public class Move {
   public Move(Square square, Player player) {
     this.square = square;
     this.player = player;
+    this.hash = Objects.hashCode(square) * 31 + Objects.hashCode(player);
+  }
+
+  /**
+   * Returns the move of the given player at the given square, reusing a shared
+   * instance whenever the square is on an 8x8 board or is {@link Square#PASS}.
+   * 
+   * @param square
+   *          The square where a piece was placed.
+   * @param player
+   *          The player placing the piece.
+   * @return The move of the player at the square.
+   */
+  public static Move of(Square square, Player player) {
+    if (square != null && player != null) {
+      int index = square.getIndex();
+      if (index >= 0) {
+        return MOVES[index][player.ordinal()];
+      }
+      if (square.equals(Square.PASS)) {
+        return MOVES[64][player.ordinal()];
+      }
+    }
+    return new Move(square, player);
   }
 
   /**
@@ -44,11 +89,14 @@ public class Move {
 
   @Override
   public int hashCode() {
-    return Objects.hash(this.square, this.player);
+    return this.hash;
   }
 
   @Override
   public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
     if (obj instanceof Move) {
       Move that = (Move) obj;
       return Objects.equals(this.square, that.square) && Objects.equals(this.player, that.player);
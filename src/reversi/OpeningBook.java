@@ -0,0 +1,184 @@
+package reversi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Read access to a file of opening moves written by {@link OpeningBookBuilder}.
+ * <p>
+ * The book file holds an 8 byte header followed by one entry per position and
+ * move, all numbers little-endian:
+ * <ul>
+ * <li>8 bytes: {@link Board#getCanonicalKey()} of the position</li>
+ * <li>4 bytes: the sum over the games the move was played in of the final disc
+ * differential for the player who played it</li>
+ * <li>2 bytes: the number of those games</li>
+ * <li>1 byte: {@link Square#getIndex()} of the move on the canonical board</li>
+ * <li>1 byte: unused</li>
+ * </ul>
+ * The entries are sorted by key, so the moves of a position are found by binary
+ * search of the memory-mapped file. Nothing is read into the heap when the book
+ * is opened.
+ */
+public class OpeningBook implements Closeable {
+
+	static final int MAGIC = 0x424f5652; // "RVOB" read as a little-endian int
+	static final byte VERSION = 1;
+	static final int HEADER_BYTES = 8;
+	static final int ENTRY_BYTES = 16;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer entries;
+	private final int size;
+
+	/**
+	 * Opens a book for reading.
+	 *
+	 * @param path
+	 *          The book file.
+	 * @throws IOException
+	 *           If the file cannot be opened or mapped, or is not a book.
+	 */
+	public OpeningBook(Path path) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		long bytes = this.channel.size();
+		if (bytes > Integer.MAX_VALUE || bytes < HEADER_BYTES || (bytes - HEADER_BYTES) % ENTRY_BYTES != 0) {
+			this.channel.close();
+			throw new IOException(path + " is not an opening book, or is too large to map");
+		}
+		this.entries = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+		this.entries.order(ByteOrder.LITTLE_ENDIAN);
+		if (this.entries.getInt(0) != MAGIC || this.entries.get(4) != VERSION) {
+			this.channel.close();
+			throw new IOException(path + " is not an opening book, or has an unsupported version");
+		}
+		this.size = (int) ((bytes - HEADER_BYTES) / ENTRY_BYTES);
+	}
+
+	/**
+	 * @return The number of entries, that is of positions and moves, in the book.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Looks up the moves the book has for a board, or for any rotation or
+	 * reflection of it.
+	 *
+	 * @param board
+	 *          The board to look up.
+	 * @return For each move of the board in the book, the number of games it was
+	 *         played in. Empty if the book does not cover the board.
+	 */
+	public Map<Square, Integer> getGames(Board board) {
+		Map<Square, Integer> games = Maps.newLinkedHashMap();
+		Symmetry inverse = board.getCanonicalSymmetry().inverse();
+		long key = board.getCanonicalKey();
+		for (int entry = this.find(key); entry < this.size && this.key(entry) == key; ++entry) {
+			games.put(inverse.apply(this.square(entry)), this.games(entry));
+		}
+		return games;
+	}
+
+	/**
+	 * Looks up the moves the book has for a board, or for any rotation or
+	 * reflection of it.
+	 *
+	 * @param board
+	 *          The board to look up.
+	 * @return For each move of the board in the book, the mean final disc
+	 *         differential of the games it was played in, for the current player.
+	 *         Empty if the book does not cover the board.
+	 */
+	public Map<Square, Double> getScores(Board board) {
+		Map<Square, Double> scores = Maps.newLinkedHashMap();
+		Symmetry inverse = board.getCanonicalSymmetry().inverse();
+		long key = board.getCanonicalKey();
+		for (int entry = this.find(key); entry < this.size && this.key(entry) == key; ++entry) {
+			scores.put(inverse.apply(this.square(entry)), (double) this.total(entry) / this.games(entry));
+		}
+		return scores;
+	}
+
+	/**
+	 * Chooses the book move for a board: the move with the best mean final disc
+	 * differential among those played often enough.
+	 *
+	 * @param board
+	 *          The board to look up.
+	 * @param minGames
+	 *          The fewest games a move must have been played in to be chosen.
+	 * @return The move, or null if the book has no move for the board played in
+	 *         at least {@code minGames} games.
+	 */
+	public Square getMove(Board board, int minGames) {
+		long key = board.getCanonicalKey();
+		int best = -1;
+		double bestScore = 0;
+		for (int entry = this.find(key); entry < this.size && this.key(entry) == key; ++entry) {
+			int games = this.games(entry);
+			double score = (double) this.total(entry) / games;
+			if (games >= Math.max(minGames, 1) && (best < 0 || score > bestScore)) {
+				best = entry;
+				bestScore = score;
+			}
+		}
+		return best < 0 ? null : board.getCanonicalSymmetry().inverse().apply(this.square(best));
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s(%s, %d entries)", this.getClass().getSimpleName(), this.path, this.size);
+	}
+
+	/**
+	 * Utility method for finding the first entry whose key is not less than the
+	 * given key. Intended only for internal use.
+	 */
+	private int find(long key) {
+		int low = 0;
+		int high = this.size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.key(middle) < key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private long key(int entry) {
+		return this.entries.getLong(HEADER_BYTES + entry * ENTRY_BYTES);
+	}
+
+	private int total(int entry) {
+		return this.entries.getInt(HEADER_BYTES + entry * ENTRY_BYTES + 8);
+	}
+
+	private int games(int entry) {
+		return this.entries.getShort(HEADER_BYTES + entry * ENTRY_BYTES + 12) & 0xffff;
+	}
+
+	private Square square(int entry) {
+		return Square.fromIndex(this.entries.get(HEADER_BYTES + entry * ENTRY_BYTES + 14));
+	}
+
+}
@@ -0,0 +1,261 @@
+package reversi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import strategy.Group3;
+
+/**
+ * Collects the opening moves of finished games and writes them as a book that
+ * can be read with {@link OpeningBook}. Each move is scored by the final disc
+ * differential of the game for the player who played it, and positions that are
+ * rotations or reflections of each other share their entries.
+ */
+public class OpeningBookBuilder {
+
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final int plies;
+
+	/**
+	 * For each canonical key, in the order of the book file, the total score and
+	 * the number of games of each move, indexed by square.
+	 */
+	private final SortedMap<Long, SortedMap<Integer, int[]>> positions = Maps.newTreeMap();
+
+	private int size;
+
+	/**
+	 * Creates an empty builder.
+	 *
+	 * @param plies
+	 *          The number of moves, counting passes, from the start of each game
+	 *          to collect.
+	 */
+	public OpeningBookBuilder(int plies) {
+		if (plies <= 0) {
+			throw new IllegalArgumentException("The number of plies to collect must be positive.");
+		}
+		this.plies = plies;
+	}
+
+	/**
+	 * @return The number of entries, that is of positions and moves, collected.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Collects the opening moves of a game. Games lost on time are skipped, since
+	 * their final boards say little about the moves.
+	 *
+	 * @param game
+	 *          A game played from the standard initial board.
+	 * @return True if the game was collected.
+	 */
+	public boolean add(GameRecord game) {
+		if (game.getTimedOut() != null) {
+			return false;
+		}
+		Board last = game.replay();
+		int blackScore = Long.bitCount(last.getDiscs(Player.BLACK)) - Long.bitCount(last.getDiscs(Player.WHITE));
+		Board board = new Board().withoutHistory();
+		List<Move> moves = game.getMoves();
+		for (int ply = 0; ply < moves.size() && ply < this.plies; ++ply) {
+			Square square = moves.get(ply).getSquare();
+			if (square.equals(Square.PASS)) {
+				board = board.pass();
+				continue;
+			}
+			this.add(board.getCanonicalKey(), canonicalSquare(board, square),
+					board.getCurrentPlayer() == Player.BLACK ? blackScore : -blackScore);
+			board = board.play(square);
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the opening moves of many games, such as those of a
+	 * {@link GameArchive}.
+	 *
+	 * @param games
+	 *          Games played from the standard initial board.
+	 * @return The number of games collected.
+	 */
+	public int addAll(Iterable<GameRecord> games) {
+		int added = 0;
+		for (GameRecord game : games) {
+			if (this.add(game)) {
+				++added;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Plays a game of a strategy against itself and collects its opening moves.
+	 * The first moves are played at random, so that repeated games explore
+	 * different openings.
+	 *
+	 * @param strategy
+	 *          The strategy that plays both sides.
+	 * @param randomMoves
+	 *          The number of moves to play at random before the strategy takes
+	 *          over.
+	 * @param random
+	 *          The source of the random moves.
+	 * @return The game played.
+	 */
+	public GameRecord addSelfPlay(Strategy strategy, int randomMoves, Random random) {
+		Board board = new Board();
+		while (!board.isComplete()) {
+			List<Square> possible = Lists.newArrayList(board.getCurrentPossibleSquares());
+			if (possible.isEmpty()) {
+				board = board.pass();
+			} else if (board.getMoveCount() < randomMoves) {
+				board = board.play(possible.get(random.nextInt(possible.size())));
+			} else {
+				board = board.play(strategy.chooseSquare(board));
+			}
+		}
+		String name = strategy.getClass().getSimpleName();
+		GameRecord game = new GameRecord(name, name, board, null, 0, 0);
+		this.add(game);
+		return game;
+	}
+
+	/**
+	 * Writes the collected moves as a book.
+	 *
+	 * @param path
+	 *          The file to create or truncate.
+	 * @throws IOException
+	 *           If the file cannot be written.
+	 */
+	public void write(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(OpeningBook.MAGIC);
+			buffer.put(OpeningBook.VERSION);
+			buffer.put((byte) 0);
+			buffer.putShort((short) 0);
+			for (Map.Entry<Long, SortedMap<Integer, int[]>> position : this.positions.entrySet()) {
+				for (Map.Entry<Integer, int[]> move : position.getValue().entrySet()) {
+					if (buffer.remaining() < OpeningBook.ENTRY_BYTES) {
+						write(buffer, channel);
+					}
+					int total = move.getValue()[0];
+					int games = move.getValue()[1];
+					// Keep the mean score of moves played in more games than the count can hold
+					if (games > 0xffff) {
+						total = (int) ((long) total * 0xffff / games);
+						games = 0xffff;
+					}
+					buffer.putLong(position.getKey());
+					buffer.putInt(total);
+					buffer.putShort((short) games);
+					buffer.put((byte) move.getKey().intValue());
+					buffer.put((byte) 0);
+				}
+			}
+			write(buffer, channel);
+		}
+	}
+
+	/**
+	 * Builds a book from an archive of games or by self-play. The arguments are
+	 * the book file to write, the number of plies to collect, and then either an
+	 * archive file, or {@code self-play} followed by the number of games for
+	 * {@link Group3} to play against itself.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3 && !(args.length == 4 && args[2].equals("self-play"))) {
+			System.err.println("Usage: OpeningBookBuilder <book> <plies> (<archive> | self-play <games>)");
+			System.exit(2);
+		}
+		OpeningBookBuilder builder = new OpeningBookBuilder(Integer.parseInt(args[1]));
+		if (args.length == 3) {
+			try (GameArchive archive = new GameArchive(Paths.get(args[2]))) {
+				int games = builder.addAll(archive);
+				System.out.println(String.format("Collected %d of %d archived games", games, archive.size()));
+			}
+		} else {
+			int games = Integer.parseInt(args[3]);
+			Random random = new Random();
+			Group3 strategy = new Group3();
+			for (int game = 0; game < games; ++game) {
+				builder.addSelfPlay(strategy, 4, random);
+			}
+			System.out.println(String.format("Played %d games", games));
+		}
+		builder.write(Paths.get(args[0]));
+		System.out.println(String.format("Wrote %d entries to %s", builder.size(), args[0]));
+	}
+
+	/**
+	 * Utility method for adding one move to the collected moves. Intended only for
+	 * internal use.
+	 */
+	private void add(long key, int square, int score) {
+		SortedMap<Integer, int[]> moves = this.positions.get(key);
+		if (moves == null) {
+			moves = Maps.newTreeMap();
+			this.positions.put(key, moves);
+		}
+		int[] stats = moves.get(square);
+		if (stats == null) {
+			stats = new int[2];
+			moves.put(square, stats);
+			++this.size;
+		}
+		stats[0] += score;
+		stats[1] += 1;
+	}
+
+	/**
+	 * Utility method for finding where a move lies on the canonical form of a
+	 * board. A board that is its own rotation or reflection has moves that are
+	 * the same up to symmetry, and they all get the lowest such square, so their
+	 * games are counted together. Intended only for internal use.
+	 */
+	private static int canonicalSquare(Board board, Square square) {
+		Board canonical = board.getCanonicalBoard();
+		long black = canonical.getDiscs(Player.BLACK);
+		long white = canonical.getDiscs(Player.WHITE);
+		int index = 64;
+		for (Symmetry symmetry : Symmetry.values()) {
+			if (symmetry.apply(board.getDiscs(Player.BLACK)) == black
+					&& symmetry.apply(board.getDiscs(Player.WHITE)) == white) {
+				index = Math.min(index, symmetry.apply(square).getIndex());
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Utility method for writing out and emptying a buffer. Intended only for
+	 * internal use.
+	 */
+	private static void write(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+}
@@ -0,0 +1,409 @@
+package reversi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scores a position by looking up the contents of groups of squares, called
+ * patterns, in tables of weights. The patterns are:
+ * <ul>
+ * <li>each edge together with the two squares diagonally next to its corners
+ * (the X-squares), 10 squares;</li>
+ * <li>the 3x3 square in each corner;</li>
+ * <li>the 2x5 rectangle along each edge from each corner, 10 squares;</li>
+ * <li>the second, third and fourth row and column from each edge;</li>
+ * <li>the diagonals of 4 to 8 squares.</li>
+ * </ul>
+ * The contents of a pattern are numbered in base 3: the i-th square of the
+ * pattern contributes 3<sup>i</sup> if it is owned by the player to move and
+ * 2&middot;3<sup>i</sup> if it is owned by their opponent. All symmetric copies
+ * of a pattern share one table, so that a table holds one weight for each
+ * numbering. There is a separate set of tables for each phase of the game,
+ * {@code (discs + 1) / 4} for the number of discs on the board. All tables are
+ * flat {@code int} arrays, and scoring a position reads 46 weights.
+ * <p>
+ * The weights are stored multiplied by {@value #SCALE}. A file of weights
+ * starts with the 8-byte header {@code "RVPW"}, a version byte, a reserved byte
+ * and the number of phases as a little-endian {@code u2}, followed by the
+ * weights as little-endian {@code int}s, phase by phase, in the order the
+ * patterns are listed above, the diagonals longest first.
+ */
+public class PatternEvaluator implements Evaluator {
+
+	/**
+	 * The number of phases of the game with their own weights.
+	 */
+	public static final int PHASES = 17;
+
+	/**
+	 * The factor by which the stored weights exceed the scores they add up to.
+	 */
+	public static final int SCALE = 64;
+
+	private static final int MAGIC = 0x57505652; // "RVPW" read as a little-endian int
+	private static final byte VERSION = 1;
+	private static final int HEADER_BYTES = 8;
+
+	// The pattern types, in the order of the tables in a file of weights
+	private static final int EDGE_2X = 0;
+	private static final int CORNER_3X3 = 1;
+	private static final int CORNER_2X5 = 2;
+	private static final int LINE_2 = 3;
+	private static final int LINE_3 = 4;
+	private static final int LINE_4 = 5;
+	private static final int DIAGONAL_8 = 6;
+	private static final int DIAGONAL_7 = 7;
+	private static final int DIAGONAL_6 = 8;
+	private static final int DIAGONAL_5 = 9;
+	private static final int DIAGONAL_4 = 10;
+	private static final int TYPES = 11;
+
+	/**
+	 * The squares of the first copy of each pattern type, in the order of their
+	 * base 3 digits.
+	 */
+	private static final int[][] CANONICAL = new int[TYPES][];
+
+	/**
+	 * The symmetries that move each copy of a pattern onto the first copy. The
+	 * contents of a copy are read from the board moved by its symmetry.
+	 */
+	private static final Symmetry[][] COPIES = new Symmetry[TYPES][];
+
+	/**
+	 * The squares of each copy of each pattern type, in the order of their base 3
+	 * digits.
+	 */
+	private static final int[][][] SQUARES = new int[TYPES][][];
+
+	/**
+	 * The number of weights of each pattern type in each phase.
+	 */
+	private static final int[] SIZES = new int[TYPES];
+
+	/**
+	 * For each set of up to 10 bits, the base 3 number with the same digits.
+	 */
+	private static final int[] TERNARY = new int[1 << 10];
+
+	/**
+	 * The squares of the diagonal of each length that starts in the top row and
+	 * ends in the rightmost column.
+	 */
+	private static final long[] DIAGONALS = new long[9];
+
+	static {
+		CANONICAL[EDGE_2X] = new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 9, 14 };
+		CANONICAL[CORNER_3X3] = new int[] { 0, 1, 2, 8, 9, 10, 16, 17, 18 };
+		CANONICAL[CORNER_2X5] = new int[] { 0, 1, 2, 3, 4, 8, 9, 10, 11, 12 };
+		for (int type = LINE_2; type <= LINE_4; ++type) {
+			int row = type - LINE_2 + 1;
+			CANONICAL[type] = new int[8];
+			for (int column = 0; column < 8; ++column) {
+				CANONICAL[type][column] = row * 8 + column;
+			}
+		}
+		for (int type = DIAGONAL_8; type <= DIAGONAL_4; ++type) {
+			int length = 8 - (type - DIAGONAL_8);
+			CANONICAL[type] = new int[length];
+			for (int i = 0; i < length; ++i) {
+				CANONICAL[type][i] = i * 8 + i + 8 - length;
+				DIAGONALS[length] |= 1L << CANONICAL[type][i];
+			}
+		}
+
+		Symmetry[] edges = { Symmetry.IDENTITY, Symmetry.FLIP_ROWS, Symmetry.FLIP_DIAGONAL, Symmetry.ROTATE_270 };
+		Symmetry[] corners = { Symmetry.IDENTITY, Symmetry.FLIP_ROWS, Symmetry.FLIP_COLUMNS, Symmetry.ROTATE_180 };
+		Symmetry[] diagonals = { Symmetry.IDENTITY, Symmetry.FLIP_DIAGONAL, Symmetry.FLIP_ROWS, Symmetry.FLIP_COLUMNS };
+		COPIES[EDGE_2X] = edges;
+		COPIES[CORNER_3X3] = corners;
+		COPIES[CORNER_2X5] = Symmetry.values();
+		COPIES[LINE_2] = edges;
+		COPIES[LINE_3] = edges;
+		COPIES[LINE_4] = edges;
+		COPIES[DIAGONAL_8] = new Symmetry[] { Symmetry.IDENTITY, Symmetry.FLIP_ROWS };
+		for (int type = DIAGONAL_7; type <= DIAGONAL_4; ++type) {
+			COPIES[type] = diagonals;
+		}
+
+		for (int type = 0; type < TYPES; ++type) {
+			SIZES[type] = pow3(CANONICAL[type].length);
+			SQUARES[type] = new int[COPIES[type].length][];
+			for (int copy = 0; copy < COPIES[type].length; ++copy) {
+				Symmetry back = COPIES[type][copy].inverse();
+				SQUARES[type][copy] = new int[CANONICAL[type].length];
+				for (int i = 0; i < CANONICAL[type].length; ++i) {
+					SQUARES[type][copy][i] = back.apply(Square.fromIndex(CANONICAL[type][i])).getIndex();
+				}
+			}
+		}
+
+		for (int bits = 1; bits < TERNARY.length; ++bits) {
+			int low = Integer.numberOfTrailingZeros(bits);
+			TERNARY[bits] = TERNARY[bits & bits - 1] + pow3(low);
+		}
+	}
+
+	private final int[][] weights = new int[TYPES][];
+
+	/**
+	 * Creates an evaluator whose weights add up to the same scores as the default
+	 * {@link PositionalEvaluator}.
+	 */
+	public PatternEvaluator() {
+		this(new PositionalEvaluator());
+	}
+
+	/**
+	 * Creates an evaluator whose weights add up to the same scores as the given
+	 * evaluator, up to rounding. The weight of each square is shared out between
+	 * the patterns it belongs to.
+	 *
+	 * @param positional
+	 *          The evaluator to imitate.
+	 */
+	public PatternEvaluator(PositionalEvaluator positional) {
+		int[] coverage = new int[64];
+		for (int[][] copies : SQUARES) {
+			for (int[] squares : copies) {
+				for (int square : squares) {
+					++coverage[square];
+				}
+			}
+		}
+		int[] discWeights = new int[PHASES];
+		for (int phase = 0; phase < PHASES; ++phase) {
+			discWeights[phase] = positional.getDiscWeight(Math.max(4, phase * 4));
+		}
+
+		for (int type = 0; type < TYPES; ++type) {
+			int[][] copies = SQUARES[type];
+			int size = SIZES[type];
+			this.weights[type] = new int[PHASES * size];
+			for (int index = 0; index < size; ++index) {
+				// The weight is the sum of the squares' shares, averaged over the copies
+				double squareShares = 0;
+				double discShares = 0;
+				for (int[] squares : copies) {
+					for (int i = 0, digits = index; i < squares.length; ++i, digits /= 3) {
+						int sign = digits % 3 == 1 ? 1 : digits % 3 == 2 ? -1 : 0;
+						squareShares += (double) sign * positional.getWeight(Square.fromIndex(squares[i])) / coverage[squares[i]];
+						discShares += (double) sign / coverage[squares[i]];
+					}
+				}
+				for (int phase = 0; phase < PHASES; ++phase) {
+					double weight = (squareShares + discWeights[phase] * discShares) / copies.length;
+					this.weights[type][phase * size + index] = (int) Math.round(weight * SCALE);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Utility constructor for taking over weights that were read from a file.
+	 * Intended only for internal use.
+	 */
+	private PatternEvaluator(IntBuffer weights) {
+		for (int type = 0; type < TYPES; ++type) {
+			this.weights[type] = new int[PHASES * SIZES[type]];
+		}
+		for (int phase = 0; phase < PHASES; ++phase) {
+			for (int type = 0; type < TYPES; ++type) {
+				int size = SIZES[type];
+				weights.get(this.weights[type], phase * size, size);
+			}
+		}
+	}
+
+	/**
+	 * Reads an evaluator from a file of weights.
+	 *
+	 * @param path
+	 *          The file to read.
+	 * @return An evaluator with the weights in the file.
+	 * @throws IOException
+	 *           If the file cannot be read.
+	 */
+	public static PatternEvaluator load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.remaining() != HEADER_BYTES + 4L * PHASES * weightsPerPhase()) {
+				throw new IllegalArgumentException("Not a file of pattern weights, or an unsupported version");
+			}
+			int magic = buffer.getInt();
+			byte version = buffer.get();
+			buffer.get();
+			int phases = buffer.getShort() & 0xffff;
+			if (magic != MAGIC || version != VERSION || phases != PHASES) {
+				throw new IllegalArgumentException("Not a file of pattern weights, or an unsupported version");
+			}
+			return new PatternEvaluator(buffer.asIntBuffer());
+		}
+	}
+
+	/**
+	 * Writes the weights of this evaluator to a file, so that
+	 * {@link #load(Path)} can read them back.
+	 *
+	 * @param path
+	 *          The file to create or truncate.
+	 * @throws IOException
+	 *           If the file cannot be written.
+	 */
+	public void save(Path path) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4 * PHASES * weightsPerPhase());
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.put((byte) 0);
+		buffer.putShort((short) PHASES);
+		for (int phase = 0; phase < PHASES; ++phase) {
+			for (int type = 0; type < TYPES; ++type) {
+				int size = SIZES[type];
+				buffer.asIntBuffer().put(this.weights[type], phase * size, size);
+				buffer.position(buffer.position() + 4 * size);
+			}
+		}
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	@Override
+	public int evaluate(SearchBoard board) {
+		long player = board.getPlayerDiscs();
+		long opponent = board.getOpponentDiscs();
+		int phase = (Long.bitCount(player | opponent) + 1) >> 2;
+
+		// The board under each symmetry, in the order of Symmetry.values(). The
+		// rotations by a quarter turn and the reflection in the anti-diagonal reuse
+		// the transposed board
+		long p0 = player;
+		long o0 = opponent;
+		long p6 = Bitboards.transpose(player);
+		long o6 = Bitboards.transpose(opponent);
+		long p1 = Bitboards.flipColumns(p6);
+		long o1 = Bitboards.flipColumns(o6);
+		long p2 = Long.reverse(player);
+		long o2 = Long.reverse(opponent);
+		long p3 = Bitboards.flipRows(p6);
+		long o3 = Bitboards.flipRows(o6);
+		long p4 = Bitboards.flipRows(player);
+		long o4 = Bitboards.flipRows(opponent);
+		long p5 = Bitboards.flipColumns(player);
+		long o5 = Bitboards.flipColumns(opponent);
+		long p7 = Long.reverse(p6);
+		long o7 = Long.reverse(o6);
+
+		// Edges and the lines parallel to them, read from the top row of the board
+		// moved by IDENTITY, FLIP_ROWS, FLIP_DIAGONAL and ROTATE_270
+		int score = this.edge(phase, p0, o0) + this.edge(phase, p4, o4) + this.edge(phase, p6, o6) + this.edge(phase, p3, o3);
+		score += this.lines(phase, p0, o0) + this.lines(phase, p4, o4) + this.lines(phase, p6, o6) + this.lines(phase, p3, o3);
+
+		// Corners, read from the top left of the board moved by IDENTITY, FLIP_ROWS,
+		// FLIP_COLUMNS and ROTATE_180
+		score += this.corner(phase, p0, o0) + this.corner(phase, p4, o4) + this.corner(phase, p5, o5) + this.corner(phase, p2, o2);
+		score += this.rectangle(phase, p0, o0) + this.rectangle(phase, p1, o1) + this.rectangle(phase, p2, o2)
+				+ this.rectangle(phase, p3, o3) + this.rectangle(phase, p4, o4) + this.rectangle(phase, p5, o5)
+				+ this.rectangle(phase, p6, o6) + this.rectangle(phase, p7, o7);
+
+		// Diagonals, read from the top right of the board moved by IDENTITY,
+		// FLIP_DIAGONAL, FLIP_ROWS and FLIP_COLUMNS
+		score += this.diagonal(phase, DIAGONAL_8, p0, o0) + this.diagonal(phase, DIAGONAL_8, p4, o4);
+		for (int type = DIAGONAL_7; type <= DIAGONAL_4; ++type) {
+			score += this.diagonal(phase, type, p0, o0) + this.diagonal(phase, type, p6, o6)
+					+ this.diagonal(phase, type, p4, o4) + this.diagonal(phase, type, p5, o5);
+		}
+		return score / SCALE;
+	}
+
+	/**
+	 * @return The weight of the top edge and X-squares.
+	 */
+	private int edge(int phase, long player, long opponent) {
+		int mine = (int) player & 0xff | (int) (player >>> 1) & 0x100 | (int) (player >>> 5) & 0x200;
+		int theirs = (int) opponent & 0xff | (int) (opponent >>> 1) & 0x100 | (int) (opponent >>> 5) & 0x200;
+		return this.weight(EDGE_2X, phase, mine, theirs);
+	}
+
+	/**
+	 * @return The weights of the second, third and fourth rows.
+	 */
+	private int lines(int phase, long player, long opponent) {
+		return this.weight(LINE_2, phase, (int) (player >>> 8) & 0xff, (int) (opponent >>> 8) & 0xff)
+				+ this.weight(LINE_3, phase, (int) (player >>> 16) & 0xff, (int) (opponent >>> 16) & 0xff)
+				+ this.weight(LINE_4, phase, (int) (player >>> 24) & 0xff, (int) (opponent >>> 24) & 0xff);
+	}
+
+	/**
+	 * @return The weight of the top left 3x3 square.
+	 */
+	private int corner(int phase, long player, long opponent) {
+		int mine = (int) player & 0x7 | (int) (player >>> 5) & 0x38 | (int) (player >>> 10) & 0x1c0;
+		int theirs = (int) opponent & 0x7 | (int) (opponent >>> 5) & 0x38 | (int) (opponent >>> 10) & 0x1c0;
+		return this.weight(CORNER_3X3, phase, mine, theirs);
+	}
+
+	/**
+	 * @return The weight of the 2x5 rectangle in the top left.
+	 */
+	private int rectangle(int phase, long player, long opponent) {
+		int mine = (int) player & 0x1f | (int) (player >>> 3) & 0x3e0;
+		int theirs = (int) opponent & 0x1f | (int) (opponent >>> 3) & 0x3e0;
+		return this.weight(CORNER_2X5, phase, mine, theirs);
+	}
+
+	/**
+	 * @return The weight of the diagonal of the given type that ends in the top
+	 *         right.
+	 */
+	private int diagonal(int phase, int type, long player, long opponent) {
+		int length = 8 - (type - DIAGONAL_8);
+		long diagonal = DIAGONALS[length];
+		// Gathers the squares of the diagonal into the top byte, one per column
+		int mine = (int) (((player & diagonal) * 0x0101010101010101L) >>> (64 - length));
+		int theirs = (int) (((opponent & diagonal) * 0x0101010101010101L) >>> (64 - length));
+		return this.weight(type, phase, mine, theirs);
+	}
+
+	/**
+	 * Utility method for looking up the weight of the contents of a pattern.
+	 * Intended only for internal use.
+	 */
+	private int weight(int type, int phase, int mine, int theirs) {
+		return this.weights[type][phase * SIZES[type] + TERNARY[mine] + 2 * TERNARY[theirs]];
+	}
+
+	/**
+	 * @return The number of weights in each phase.
+	 */
+	private static int weightsPerPhase() {
+		int count = 0;
+		for (int size : SIZES) {
+			count += size;
+		}
+		return count;
+	}
+
+	/**
+	 * @return 3 to the given power.
+	 */
+	private static int pow3(int exponent) {
+		int power = 1;
+		for (int i = 0; i < exponent; ++i) {
+			power *= 3;
+		}
+		return power;
+	}
+
+}
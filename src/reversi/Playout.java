@@ -0,0 +1,234 @@
+package reversi;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Plays games to the end at random, as fast as possible. A game is played on
+ * the two players' disc masks, each move chosen uniformly from the mask of
+ * possible moves, so playing one allocates nothing.
+ * <p>
+ * A playout engine holds its own random number generator and is not safe to
+ * share between threads; each thread should have its own. Large numbers of
+ * games can be played on several threads with
+ * {@link #playAll(Board, long, int, long)}.
+ */
+public class Playout {
+
+	private final SplittableRandom random;
+
+	/**
+	 * Creates a playout engine with a random seed.
+	 */
+	public Playout() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Creates a playout engine that always plays the same games from the same
+	 * positions.
+	 *
+	 * @param seed
+	 *          The seed of the random number generator.
+	 */
+	public Playout(long seed) {
+		this(new SplittableRandom(seed));
+	}
+
+	/**
+	 * Utility constructor for taking over a generator. Intended only for internal
+	 * use.
+	 */
+	private Playout(SplittableRandom random) {
+		this.random = random;
+	}
+
+	/**
+	 * Plays a game from a board to the end at random.
+	 *
+	 * @param board
+	 *          The position to play from.
+	 * @return The final disc differential for the current player of the board.
+	 */
+	public int play(Board board) {
+		Player player = board.getCurrentPlayer();
+		return this.play(board.getDiscs(player), board.getDiscs(player.opponent()));
+	}
+
+	/**
+	 * Plays a game from a position to the end at random.
+	 *
+	 * @param player
+	 *          The discs of the player to move, as a mask where square (row,
+	 *          column) is bit {@code row * 8 + column}.
+	 * @param opponent
+	 *          The discs of the other player.
+	 * @return The final disc differential for the player to move.
+	 */
+	public int play(long player, long opponent) {
+		// The discs of the player to move are in p, and sign says whose they are
+		long p = player;
+		long o = opponent;
+		int sign = 1;
+		while (true) {
+			long moves = Bitboards.moves(p, o);
+			if (moves == 0L) {
+				if (Bitboards.moves(o, p) == 0L) {
+					break;
+				}
+			} else {
+				// Skip a random number of the possible moves
+				for (int skip = this.random.nextInt(Long.bitCount(moves)); skip > 0; --skip) {
+					moves &= moves - 1;
+				}
+				int index = Long.numberOfTrailingZeros(moves);
+				long flips = Bitboards.flips(p, o, index);
+				p |= flips | 1L << index;
+				o ^= flips;
+			}
+			long swap = p;
+			p = o;
+			o = swap;
+			sign = -sign;
+		}
+		return sign * (Long.bitCount(p) - Long.bitCount(o));
+	}
+
+	/**
+	 * Plays many games from a board on several threads.
+	 *
+	 * @param board
+	 *          The position to play from.
+	 * @param playouts
+	 *          The number of games to play.
+	 * @param threads
+	 *          The number of threads to play them on.
+	 * @param seed
+	 *          The seed from which each thread's generator is split, so the same
+	 *          arguments always give the same results.
+	 * @return The results for the current player of the board.
+	 */
+	public static Results playAll(final Board board, long playouts, int threads, long seed) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be greater than 0.");
+		}
+		final Player player = board.getCurrentPlayer();
+		final long mine = board.getDiscs(player);
+		final long theirs = board.getDiscs(player.opponent());
+		SplittableRandom random = new SplittableRandom(seed);
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Playout-%d").build());
+		try {
+			List<Future<Results>> batches = Lists.newArrayList();
+			for (int i = 0; i < threads; ++i) {
+				final Playout playout = new Playout(random.split());
+				final long games = playouts / threads + (i < playouts % threads ? 1 : 0);
+				batches.add(executor.submit(new Callable<Results>() {
+					@Override
+					public Results call() {
+						Results results = new Results();
+						for (long game = 0; game < games; ++game) {
+							results.add(playout.play(mine, theirs));
+						}
+						return results;
+					}
+				}));
+			}
+			Results total = new Results();
+			for (Future<Results> batch : batches) {
+				total.add(batch.get());
+			}
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while playing games", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("playing games failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The outcomes of a number of games, for one player.
+	 */
+	public static class Results {
+		private long wins;
+		private long draws;
+		private long losses;
+		private long discDifferential;
+
+		private Results() {
+		}
+
+		/**
+		 * @return The number of games.
+		 */
+		public long getGames() {
+			return this.wins + this.draws + this.losses;
+		}
+
+		/**
+		 * @return The number of games won.
+		 */
+		public long getWins() {
+			return this.wins;
+		}
+
+		/**
+		 * @return The number of games drawn.
+		 */
+		public long getDraws() {
+			return this.draws;
+		}
+
+		/**
+		 * @return The number of games lost.
+		 */
+		public long getLosses() {
+			return this.losses;
+		}
+
+		/**
+		 * @return The mean final disc differential, or 0 if there were no games.
+		 */
+		public double getMeanDiscDifferential() {
+			long games = this.getGames();
+			return games == 0 ? 0 : (double) this.discDifferential / games;
+		}
+
+		@Override
+		public String toString() {
+			String message = "%s(%d wins, %d draws, %d losses, mean disc differential %.2f)";
+			return String.format(message, this.getClass().getSimpleName(), this.wins, this.draws, this.losses,
+					this.getMeanDiscDifferential());
+		}
+
+		private void add(int discDifferential) {
+			if (discDifferential > 0) {
+				++this.wins;
+			} else if (discDifferential < 0) {
+				++this.losses;
+			} else {
+				++this.draws;
+			}
+			this.discDifferential += discDifferential;
+		}
+
+		private void add(Results results) {
+			this.wins += results.wins;
+			this.draws += results.draws;
+			this.losses += results.losses;
+			this.discDifferential += results.discDifferential;
+		}
+	}
+
+}
@@ -0,0 +1,25 @@
+package reversi;
+
+/**
+ * A strategy that can go on thinking while its opponent chooses a square, and
+ * use what it learns when its own turn comes.
+ */
+public interface PonderingStrategy extends Strategy {
+  /**
+   * Starts thinking in the background about the opponent's possible replies.
+   * Called after the strategy's square has been played, and must return
+   * promptly.
+   *
+   * @param board
+   *          The board after the strategy's square was played, with the
+   *          opponent to move.
+   */
+  public void startPondering(Board board);
+
+  /**
+   * Stops any background thinking, and waits until it has stopped. Called when
+   * the opponent has moved, before the strategy is asked for its next square,
+   * and when the game ends. Does nothing if the strategy is not pondering.
+   */
+  public void stopPondering();
+}
@@ -0,0 +1,94 @@
+package reversi;
+
+/**
+ * A reusable block of decoded positions, held in primitive arrays so that
+ * large numbers of positions can be streamed by {@link PositionReader} without
+ * building a {@link Board} for each one.
+ */
+public class PositionBatch {
+
+	final long[] black;
+	final long[] white;
+	final byte[] side;
+	final int[] moveCount;
+	int size;
+
+	/**
+	 * Creates an empty batch.
+	 *
+	 * @param capacity
+	 *          The maximum number of positions the batch can hold.
+	 */
+	public PositionBatch(int capacity) {
+		this.black = new long[capacity];
+		this.white = new long[capacity];
+		this.side = new byte[capacity];
+		this.moveCount = new int[capacity];
+	}
+
+	/**
+	 * @return The maximum number of positions the batch can hold.
+	 */
+	public int capacity() {
+		return this.black.length;
+	}
+
+	/**
+	 * @return The number of positions currently in the batch.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param i
+	 *          The index of a position in the batch.
+	 * @param owner
+	 *          A player.
+	 * @return The squares occupied by the given player in that position.
+	 */
+	public long getDiscs(int i, Player owner) {
+		this.check(i);
+		return owner == Player.BLACK ? this.black[i] : this.white[i];
+	}
+
+	/**
+	 * @param i
+	 *          The index of a position in the batch.
+	 * @return The player to move in that position.
+	 */
+	public Player getCurrentPlayer(int i) {
+		this.check(i);
+		return this.side[i] == 0 ? Player.BLACK : Player.WHITE;
+	}
+
+	/**
+	 * @param i
+	 *          The index of a position in the batch.
+	 * @return The number of moves made before that position.
+	 */
+	public int getMoveCount(int i) {
+		this.check(i);
+		return this.moveCount[i];
+	}
+
+	/**
+	 * @param i
+	 *          The index of a position in the batch.
+	 * @return A board with that position and no recorded moves.
+	 */
+	public Board toBoard(int i) {
+		this.check(i);
+		return PositionCodec.toBoard(this.black[i], this.white[i], this.side[i], this.moveCount[i]);
+	}
+
+	/**
+	 * Utility method for checking an index. Intended only for internal use.
+	 */
+	private void check(int i) {
+		if (i < 0 || i >= this.size) {
+			throw new IndexOutOfBoundsException("Index " + i + " is not in a batch of " + this.size);
+		}
+	}
+
+}
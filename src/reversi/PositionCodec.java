@@ -0,0 +1,151 @@
+package reversi;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-width binary encoding of Reversi positions. Each position is written
+ * as the {@link Player#BLACK} disc mask and the {@link Player#WHITE} disc mask
+ * (8 little-endian bytes each, see {@link Board#getDiscs(Player)}), then one
+ * byte with the player to move, and optionally one byte with
+ * {@link Board#getMoveCount()}.
+ * <p>
+ * Files of positions written by {@link PositionWriter} start with an 8 byte
+ * header: the magic bytes {@code RVPS}, the format version, a flags byte
+ * recording whether move counts are included, and two reserved bytes.
+ */
+public final class PositionCodec {
+
+	/**
+	 * The size in bytes of an encoded position without a move count.
+	 */
+	public static final int RECORD_BYTES = 17;
+
+	/**
+	 * The size in bytes of an encoded position with a move count.
+	 */
+	public static final int RECORD_BYTES_WITH_MOVE_COUNT = 18;
+
+	/**
+	 * The size in bytes of the header of a file of positions.
+	 */
+	public static final int HEADER_BYTES = 8;
+
+	private static final int MAGIC = 0x53505652; // "RVPS" read as a little-endian int
+	private static final byte VERSION = 1;
+	private static final byte FLAG_MOVE_COUNT = 1;
+	private static final byte WHITE_TO_MOVE = 1;
+
+	private PositionCodec() {
+	}
+
+	/**
+	 * @param withMoveCount
+	 *          Whether move counts are included.
+	 * @return The size in bytes of an encoded position.
+	 */
+	public static int recordBytes(boolean withMoveCount) {
+		return withMoveCount ? RECORD_BYTES_WITH_MOVE_COUNT : RECORD_BYTES;
+	}
+
+	/**
+	 * Writes one position at the current position of the buffer.
+	 *
+	 * @param board
+	 *          The position to encode.
+	 * @param buffer
+	 *          The buffer to write to. Its byte order is set to little-endian.
+	 * @param withMoveCount
+	 *          Whether to include the move count of the board. Counts above 255
+	 *          cannot be encoded, and nothing is written if it is one of them.
+	 */
+	public static void encode(Board board, ByteBuffer buffer, boolean withMoveCount) {
+		int moveCount = board.getMoveCount();
+		if (withMoveCount && (moveCount < 0 || moveCount > 0xff)) {
+			throw new IllegalArgumentException("Cannot encode a move count of " + moveCount);
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putLong(board.getDiscs(Player.BLACK));
+		buffer.putLong(board.getDiscs(Player.WHITE));
+		buffer.put(board.getCurrentPlayer() == Player.WHITE ? WHITE_TO_MOVE : 0);
+		if (withMoveCount) {
+			buffer.put((byte) moveCount);
+		}
+	}
+
+	/**
+	 * Reads one position from the current position of the buffer.
+	 *
+	 * @param buffer
+	 *          The buffer to read from. Its byte order is set to little-endian.
+	 * @param withMoveCount
+	 *          Whether the position was encoded with its move count. Without it,
+	 *          the move count of the board is taken to be the number of discs
+	 *          placed since the start of the game.
+	 * @return A board with the encoded position and no recorded moves.
+	 * @throws BufferUnderflowException
+	 *           If the buffer does not hold a whole position.
+	 */
+	public static Board decode(ByteBuffer buffer, boolean withMoveCount) {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		long black = buffer.getLong();
+		long white = buffer.getLong();
+		byte side = buffer.get();
+		int moveCount = withMoveCount ? buffer.get() & 0xff : Long.bitCount(black | white) - 4;
+		return toBoard(black, white, side, moveCount);
+	}
+
+	/**
+	 * Utility method for checking decoded fields and building a board from them.
+	 * Intended only for internal use.
+	 */
+	static Board toBoard(long black, long white, byte side, int moveCount) {
+		check(black, white, side);
+		Player player = side == WHITE_TO_MOVE ? Player.WHITE : Player.BLACK;
+		return new Board(player, black, white, moveCount);
+	}
+
+	/**
+	 * Utility method for checking that decoded fields can be a position: no square
+	 * holds discs of both players, and the side byte names a player. Intended
+	 * only for internal use.
+	 */
+	static void check(long black, long white, byte side) {
+		if ((black & white) != 0L || (side & ~WHITE_TO_MOVE) != 0) {
+			String message = "Not an encoded position: black=%016x white=%016x side=%d";
+			throw new IllegalArgumentException(String.format(message, black, white, side));
+		}
+	}
+
+	/**
+	 * Writes the header of a file of positions at the current position of the
+	 * buffer.
+	 */
+	static void encodeHeader(ByteBuffer buffer, boolean withMoveCount) {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.put(withMoveCount ? FLAG_MOVE_COUNT : 0);
+		buffer.putShort((short) 0);
+	}
+
+	/**
+	 * Reads the header of a file of positions from the current position of the
+	 * buffer.
+	 *
+	 * @return Whether the positions in the file include move counts.
+	 */
+	static boolean decodeHeader(ByteBuffer buffer) {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		int magic = buffer.getInt();
+		byte version = buffer.get();
+		byte flags = buffer.get();
+		buffer.getShort();
+		if (magic != MAGIC || version != VERSION) {
+			throw new IllegalArgumentException("Not a file of positions, or an unsupported version");
+		}
+		return (flags & FLAG_MOVE_COUNT) != 0;
+	}
+
+}
@@ -0,0 +1,155 @@
+package reversi;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams positions in the format of {@link PositionCodec} from a channel. Only
+ * one block of the input is held in memory at a time, so arbitrarily large
+ * files can be read.
+ */
+public class PositionReader implements Closeable {
+
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private final ReadableByteChannel channel;
+	private final boolean withMoveCount;
+	private final int recordBytes;
+	private final ByteBuffer buffer;
+	private boolean endOfInput;
+
+	/**
+	 * Creates a reader and reads the header of a file of positions.
+	 *
+	 * @param channel
+	 *          The channel to read from. It is closed when the reader is closed.
+	 * @throws IOException
+	 *           If the header cannot be read or is not valid.
+	 */
+	public PositionReader(ReadableByteChannel channel) throws IOException {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		this.buffer.flip();
+		if (!this.fill(PositionCodec.HEADER_BYTES)) {
+			throw new EOFException("Missing header of file of positions");
+		}
+		try {
+			this.withMoveCount = PositionCodec.decodeHeader(this.buffer);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		this.recordBytes = PositionCodec.recordBytes(this.withMoveCount);
+	}
+
+	/**
+	 * Opens a file of positions.
+	 *
+	 * @param path
+	 *          The file to read.
+	 * @return A reader for the file.
+	 * @throws IOException
+	 *           If the file cannot be opened or its header is not valid.
+	 */
+	public static PositionReader open(Path path) throws IOException {
+		return new PositionReader(FileChannel.open(path, StandardOpenOption.READ));
+	}
+
+	/**
+	 * @return Whether the positions being read include move counts.
+	 */
+	public boolean hasMoveCounts() {
+		return this.withMoveCount;
+	}
+
+	/**
+	 * Reads the next position.
+	 *
+	 * @return A board with the next position and no recorded moves, or null if
+	 *         all positions have been read.
+	 * @throws IOException
+	 *           If the channel cannot be read or ends part way through a position.
+	 */
+	public Board read() throws IOException {
+		if (!this.fill(this.recordBytes)) {
+			return null;
+		}
+		try {
+			return PositionCodec.decode(this.buffer, this.withMoveCount);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads as many of the next positions as fit in the batch, replacing its
+	 * contents.
+	 *
+	 * @param batch
+	 *          The batch to fill.
+	 * @return The number of positions read, zero if all positions have been read.
+	 * @throws IOException
+	 *           If the channel cannot be read, ends part way through a position or
+	 *           holds something that is not a position.
+	 */
+	public int read(PositionBatch batch) throws IOException {
+		int size = 0;
+		int capacity = batch.capacity();
+		while (size < capacity && this.fill(this.recordBytes)) {
+			int available = Math.min(capacity - size, this.buffer.remaining() / this.recordBytes);
+			for (int i = 0; i < available; ++i, ++size) {
+				batch.black[size] = this.buffer.getLong();
+				batch.white[size] = this.buffer.getLong();
+				batch.side[size] = this.buffer.get();
+				try {
+					PositionCodec.check(batch.black[size], batch.white[size], batch.side[size]);
+				} catch (IllegalArgumentException e) {
+					throw new IOException(e.getMessage(), e);
+				}
+				batch.moveCount[size] = this.withMoveCount
+						? this.buffer.get() & 0xff
+						: Long.bitCount(batch.black[size] | batch.white[size]) - 4;
+			}
+		}
+		batch.size = size;
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * Utility method for making sure the buffer holds at least the given number of
+	 * bytes. Intended only for internal use.
+	 *
+	 * @return False if the input ended cleanly before any more bytes.
+	 */
+	private boolean fill(int bytes) throws IOException {
+		if (this.buffer.remaining() >= bytes) {
+			return true;
+		}
+		this.buffer.compact();
+		while (this.buffer.position() < bytes && !this.endOfInput) {
+			if (this.channel.read(this.buffer) < 0) {
+				this.endOfInput = true;
+			}
+		}
+		this.buffer.flip();
+		if (this.buffer.remaining() >= bytes) {
+			return true;
+		}
+		if (this.buffer.hasRemaining()) {
+			throw new EOFException("Input ends part way through a position");
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,118 @@
+package reversi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams positions to a channel in the format of {@link PositionCodec},
+ * buffering them into large blocks.
+ */
+public class PositionWriter implements Closeable {
+
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private final WritableByteChannel channel;
+	private final boolean withMoveCount;
+	private final int recordBytes;
+	private final ByteBuffer buffer;
+
+	/**
+	 * Creates a writer and writes the header of a file of positions.
+	 *
+	 * @param channel
+	 *          The channel to write to. It is closed when the writer is closed.
+	 * @param withMoveCount
+	 *          Whether to include the move count of each position.
+	 * @throws IOException
+	 *           If the header cannot be written.
+	 */
+	public PositionWriter(WritableByteChannel channel, boolean withMoveCount) throws IOException {
+		this.channel = channel;
+		this.withMoveCount = withMoveCount;
+		this.recordBytes = PositionCodec.recordBytes(withMoveCount);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES - BUFFER_BYTES % this.recordBytes);
+		PositionCodec.encodeHeader(this.buffer, withMoveCount);
+	}
+
+	/**
+	 * Creates or truncates a file of positions.
+	 *
+	 * @param path
+	 *          The file to write.
+	 * @param withMoveCount
+	 *          Whether to include the move count of each position.
+	 * @return A writer for the file.
+	 * @throws IOException
+	 *           If the file cannot be opened.
+	 */
+	public static PositionWriter open(Path path, boolean withMoveCount) throws IOException {
+		return new PositionWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING), withMoveCount);
+	}
+
+	/**
+	 * Writes one position.
+	 *
+	 * @param board
+	 *          The position to write.
+	 * @throws IOException
+	 *           If the channel cannot be written.
+	 */
+	public void write(Board board) throws IOException {
+		if (this.buffer.remaining() < this.recordBytes) {
+			this.drain();
+		}
+		PositionCodec.encode(board, this.buffer, this.withMoveCount);
+	}
+
+	/**
+	 * Writes a sequence of positions.
+	 *
+	 * @param boards
+	 *          The positions to write, in order.
+	 * @throws IOException
+	 *           If the channel cannot be written.
+	 */
+	public void writeAll(Iterable<? extends Board> boards) throws IOException {
+		for (Board board : boards) {
+			this.write(board);
+		}
+	}
+
+	/**
+	 * Writes all buffered positions to the channel.
+	 *
+	 * @throws IOException
+	 *           If the channel cannot be written.
+	 */
+	public void flush() throws IOException {
+		this.drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.drain();
+		} finally {
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * Utility method for emptying the buffer into the channel. Intended only for
+	 * internal use.
+	 */
+	private void drain() throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining()) {
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+}
@@ -0,0 +1,109 @@
+package reversi;
+
+/**
+ * Scores a position by the squares each player occupies, each square having a
+ * fixed weight, and by the difference in the number of discs. Until the last few
+ * moves, owning fewer discs counts for a player, since it leaves the opponent
+ * fewer moves; near the end, owning more discs counts.
+ * <p>
+ * The sums of the square weights are the evaluator's only feature, so on a
+ * {@link SearchBoard} that keeps it, scoring a position takes constant time.
+ */
+public class PositionalEvaluator implements IncrementalEvaluator {
+
+	/**
+	 * The weights of the squares unless others are given: corners are worth most,
+	 * and the squares next to them least.
+	 */
+	private static final int[][] DEFAULT_WEIGHTS = {
+			{100, -5, 20, 5, 5, 20, -5, 100},
+			{-5, -20, 1, 1, 1, 1, -20, -5},
+			{20, 1, 10, 2, 2, 10, 1, 20},
+			{5, 1, 2, 0, 0, 2, 1, 5},
+			{5, 1, 2, 0, 0, 2, 1, 5},
+			{20, 1, 10, 2, 2, 10, 1, 20},
+			{-5, -20, 1, 1, 1, 1, -20, -5},
+			{100, -5, 20, 5, 5, 20, -5, 100}};
+
+	/**
+	 * The number of discs on the board after which more discs count for, rather
+	 * than against, a player.
+	 */
+	private static final int ENDGAME_DISCS = 50;
+
+	private final int[] weights = new int[64];
+
+	/**
+	 * Creates an evaluator with the default weights.
+	 */
+	public PositionalEvaluator() {
+		this(DEFAULT_WEIGHTS);
+	}
+
+	/**
+	 * Creates an evaluator.
+	 *
+	 * @param weights
+	 *          The weight of each square, indexed by row and then column.
+	 */
+	public PositionalEvaluator(int[][] weights) {
+		if (weights.length != 8) {
+			throw new IllegalArgumentException("There must be weights for 8 rows.");
+		}
+		for (int row = 0; row < 8; ++row) {
+			if (weights[row].length != 8) {
+				throw new IllegalArgumentException("There must be weights for 8 columns.");
+			}
+			for (int column = 0; column < 8; ++column) {
+				this.weights[row * 8 + column] = weights[row][column];
+			}
+		}
+	}
+
+	/**
+	 * @return The weight of the given square.
+	 */
+	public int getWeight(Square square) {
+		return this.weights[square.getIndex()];
+	}
+
+	/**
+	 * @param discs
+	 *          The number of discs on the board.
+	 * @return What each disc a player owns beyond their opponent's count adds to
+	 *         their score.
+	 */
+	public int getDiscWeight(int discs) {
+		return discs <= ENDGAME_DISCS ? -1 : 1;
+	}
+
+	@Override
+	public int[][] getFeatures() {
+		return new int[][] { this.weights.clone() };
+	}
+
+	@Override
+	public int evaluate(SearchBoard board) {
+		long mine = board.getPlayerDiscs();
+		long theirs = board.getOpponentDiscs();
+		int count = Long.bitCount(mine);
+		int opponentCount = Long.bitCount(theirs);
+		int score = board.getFeatureCount() > 0
+				? board.getPlayerFeature(0) - board.getOpponentFeature(0)
+				: this.sum(mine) - this.sum(theirs);
+		return score + this.getDiscWeight(count + opponentCount) * (count - opponentCount);
+	}
+
+	/**
+	 * Utility method for summing the weights of a set of squares. Intended only
+	 * for internal use.
+	 */
+	private int sum(long squares) {
+		int sum = 0;
+		for (; squares != 0L; squares &= squares - 1) {
+			sum += this.weights[Long.numberOfTrailingZeros(squares)];
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,268 @@
+package reversi;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The parameters of Multi-ProbCut, which lets a {@link SearchEngine} skip deep
+ * searches whose result a shallow search predicts. For each stage of the game,
+ * each depth of at least {@link #MIN_DEPTH} and each shallower depth it is
+ * checked with, the score of the deep search of a position is modelled as
+ * {@code slope * shallow + intercept}, with normally distributed errors of the
+ * given deviation. The parameters are fitted by {@link ProbCutFitter} from the
+ * scores of self-play positions, and only hold for the evaluator they were
+ * fitted with.
+ * <p>
+ * Each depth is checked with a search of depth 1 or 2, whichever has the same
+ * parity, and, from depth 7, with a search of about half its depth too.
+ * <p>
+ * Parameters are saved as text, one line per stage, depth and shallow depth,
+ * holding those three numbers followed by the slope, intercept and deviation.
+ */
+public class ProbCut {
+
+	/**
+	 * The shallowest search that is ever cut.
+	 */
+	public static final int MIN_DEPTH = 3;
+
+	/**
+	 * The number of stages of the game, by the number of discs on the board.
+	 */
+	public static final int PHASES = 4;
+
+	/**
+	 * The deepest search parameters are fitted for unless asked otherwise.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 10;
+
+	/**
+	 * The parameters of the evaluator of {@code strategy.Group3}, fitted by
+	 * {@link ProbCutFitter} from 250 positions of each stage. One row per stage
+	 * and depth from {@link #MIN_DEPTH}, holding the slope, intercept and
+	 * deviation of each check in turn.
+	 */
+	private static final double[][] DEFAULT_PARAMETERS = {
+			{ 1.0888, -0.75, 9.10 },
+			{ 1.0844, -1.07, 8.95 },
+			{ 1.2562, 2.38, 17.89 },
+			{ 1.3049, 0.57, 19.98 },
+			{ 1.4786, 1.33, 24.05, 1.3532, 2.39, 21.16 },
+			{ 1.5074, 1.56, 24.12, 1.3786, 3.00, 22.07 },
+			{ 1.5875, 2.62, 27.37, 1.4487, 3.81, 24.88 },
+			{ 1.5951, 1.26, 27.11, 1.4531, 2.76, 25.70 },
+			{ 1.0453, -5.79, 38.27 },
+			{ 1.1521, -0.24, 46.47 },
+			{ 1.2192, -5.95, 81.01 },
+			{ 1.3630, 1.72, 67.41 },
+			{ 1.3790, -4.33, 104.40, 1.4157, 3.02, 75.41 },
+			{ 1.5974, 8.30, 93.18, 1.4343, 9.74, 50.62 },
+			{ 1.6303, -0.90, 146.94, 1.7119, 7.68, 114.02 },
+			{ 1.8809, 17.33, 137.39, 1.7146, 19.62, 95.45 },
+			{ 1.1585, -16.24, 78.98 },
+			{ 1.1593, -16.19, 85.35 },
+			{ 1.3161, -9.46, 137.16 },
+			{ 1.3231, -18.31, 136.55 },
+			{ 1.4929, -7.22, 194.41, 1.3136, 12.71, 142.14 },
+			{ 1.5008, -18.97, 206.47, 1.3211, 2.25, 144.58 },
+			{ 1.6812, 6.05, 268.51, 1.4891, 28.08, 215.73 },
+			{ 1.6930, -19.98, 271.07, 1.4889, 3.94, 215.46 },
+			{ 1.1465, -37.48, 164.91 },
+			{ 1.1055, -45.35, 173.79 },
+			{ 1.2583, -0.62, 296.66 },
+			{ 1.2566, -25.66, 307.98 },
+			{ 1.3820, 4.58, 433.27, 1.2858, 43.96, 310.19 },
+			{ 1.3626, -14.95, 472.40, 1.2916, 44.88, 363.95 },
+			{ 1.4735, 4.02, 619.69, 1.4005, 43.86, 508.63 },
+			{ 1.4591, 39.97, 702.39, 1.4109, 105.89, 604.96 }
+	};
+
+	/**
+	 * For each depth, the depths of the shallow searches it is checked with.
+	 */
+	private static final int[][] SHALLOW_DEPTHS = new int[65][];
+
+	static {
+		for (int depth = 0; depth < SHALLOW_DEPTHS.length; ++depth) {
+			int first = 2 - (depth & 1);
+			int second = depth / 2 - ((depth / 2 - depth) & 1);
+			SHALLOW_DEPTHS[depth] = second > first ? new int[] { first, second } : new int[] { first };
+		}
+	}
+
+	private final int maxDepth;
+
+	// Indexed by stage, depth and check
+	private final double[][][] slopes;
+	private final double[][][] intercepts;
+	private final double[][][] deviations;
+
+	/**
+	 * Creates the parameters fitted for the evaluator of {@code strategy.Group3}.
+	 */
+	public ProbCut() {
+		this(DEFAULT_MAX_DEPTH);
+		for (int phase = 0; phase < PHASES; ++phase) {
+			for (int depth = MIN_DEPTH; depth <= this.maxDepth; ++depth) {
+				double[] row = DEFAULT_PARAMETERS[phase * (this.maxDepth - MIN_DEPTH + 1) + depth - MIN_DEPTH];
+				for (int check = 0; check < SHALLOW_DEPTHS[depth].length; ++check) {
+					this.set(phase, depth, check, row[3 * check], row[3 * check + 1], row[3 * check + 2]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates parameters that never predict a cut, to be filled in with
+	 * {@link #set(int, int, int, double, double, double)}. Intended only for
+	 * internal use.
+	 */
+	ProbCut(int maxDepth) {
+		if (maxDepth < MIN_DEPTH) {
+			throw new IllegalArgumentException("Maximum depth must be at least " + MIN_DEPTH + ".");
+		}
+		this.maxDepth = maxDepth;
+		this.slopes = new double[PHASES][maxDepth + 1][2];
+		this.intercepts = new double[PHASES][maxDepth + 1][2];
+		this.deviations = new double[PHASES][maxDepth + 1][2];
+	}
+
+	/**
+	 * Reads parameters saved by {@link #save(Path)}.
+	 *
+	 * @param path
+	 *          The file to read.
+	 * @return The parameters in the file.
+	 * @throws IOException
+	 *           If the file cannot be read.
+	 */
+	public static ProbCut load(Path path) throws IOException {
+		List<double[]> lines = Lists.newArrayList();
+		int maxDepth = MIN_DEPTH;
+		for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			String[] fields = line.trim().split("\\s+");
+			if (fields.length != 6) {
+				throw new IllegalArgumentException("Not a file of ProbCut parameters: " + line);
+			}
+			double[] values = new double[6];
+			for (int i = 0; i < 6; ++i) {
+				values[i] = Double.parseDouble(fields[i]);
+			}
+			maxDepth = Math.max(maxDepth, (int) values[1]);
+			lines.add(values);
+		}
+		ProbCut probCut = new ProbCut(maxDepth);
+		for (double[] values : lines) {
+			int phase = (int) values[0];
+			int depth = (int) values[1];
+			if (phase < 0 || phase >= PHASES || depth < MIN_DEPTH || depth >= SHALLOW_DEPTHS.length) {
+				throw new IllegalArgumentException("Not a file of ProbCut parameters: " + phase + " " + depth);
+			}
+			int check = indexOf(SHALLOW_DEPTHS[depth], (int) values[2]);
+			if (check < 0) {
+				throw new IllegalArgumentException("Not a file of ProbCut parameters: " + phase + " " + depth);
+			}
+			probCut.set(phase, depth, check, values[3], values[4], values[5]);
+		}
+		return probCut;
+	}
+
+	/**
+	 * Writes these parameters to a file, so that {@link #load(Path)} can read
+	 * them back.
+	 *
+	 * @param path
+	 *          The file to create or truncate.
+	 * @throws IOException
+	 *           If the file cannot be written.
+	 */
+	public void save(Path path) throws IOException {
+		List<String> lines = Lists.newArrayList();
+		for (int phase = 0; phase < PHASES; ++phase) {
+			for (int depth = MIN_DEPTH; depth <= this.maxDepth; ++depth) {
+				int[] shallowDepths = SHALLOW_DEPTHS[depth];
+				for (int check = 0; check < shallowDepths.length; ++check) {
+					lines.add(String.format(Locale.ROOT, "%d %d %d %.4f %.2f %.2f", phase, depth, shallowDepths[check],
+							this.slopes[phase][depth][check], this.intercepts[phase][depth][check],
+							this.deviations[phase][depth][check]));
+				}
+			}
+		}
+		Files.write(path, lines, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return The deepest search that is ever cut.
+	 */
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	/**
+	 * @param discs
+	 *          The number of discs on the board.
+	 * @return The stage of the game.
+	 */
+	public static int getPhase(int discs) {
+		return Math.min(Math.max(discs - 4, 0) / 15, PHASES - 1);
+	}
+
+	/**
+	 * @param depth
+	 *          The depth of a search, at least {@link #MIN_DEPTH}.
+	 * @return The depths of the shallow searches it is checked with, shallowest
+	 *         first.
+	 */
+	public static int[] getShallowDepths(int depth) {
+		return SHALLOW_DEPTHS[depth].clone();
+	}
+
+	int getCheckCount(int depth) {
+		return SHALLOW_DEPTHS[depth].length;
+	}
+
+	int getShallowDepth(int depth, int check) {
+		return SHALLOW_DEPTHS[depth][check];
+	}
+
+	double getSlope(int phase, int depth, int check) {
+		return this.slopes[phase][depth][check];
+	}
+
+	double getIntercept(int phase, int depth, int check) {
+		return this.intercepts[phase][depth][check];
+	}
+
+	double getDeviation(int phase, int depth, int check) {
+		return this.deviations[phase][depth][check];
+	}
+
+	/**
+	 * Sets the parameters of one check. A check with a slope that is not
+	 * positive never predicts a cut. Intended only for internal use.
+	 */
+	void set(int phase, int depth, int check, double slope, double intercept, double deviation) {
+		this.slopes[phase][depth][check] = slope;
+		this.intercepts[phase][depth][check] = intercept;
+		this.deviations[phase][depth][check] = deviation;
+	}
+
+	private static int indexOf(int[] values, int value) {
+		for (int i = 0; i < values.length; ++i) {
+			if (values[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,191 @@
+package reversi;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+
+import strategy.Group3;
+
+/**
+ * Fits the parameters of {@link ProbCut} for an evaluator. Positions are
+ * sampled from games, each is searched to every depth up to the maximum
+ * without selectivity, and the score of each deep search is regressed on the
+ * score of each shallow search it is checked with, separately for each stage
+ * of the game.
+ */
+public class ProbCutFitter {
+
+	private final Evaluator evaluator;
+	private final int maxDepth;
+
+	// Sums for the regressions, indexed by stage, depth and check: the number of
+	// positions, and the sums of x, y, x * x, x * y and y * y
+	private final double[][][][] sums;
+
+	private final int[] positions = new int[ProbCut.PHASES];
+
+	/**
+	 * Creates a fitter with no positions.
+	 *
+	 * @param evaluator
+	 *          The evaluator to fit the parameters for.
+	 * @param maxDepth
+	 *          The deepest search to fit the parameters for.
+	 */
+	public ProbCutFitter(Evaluator evaluator, int maxDepth) {
+		if (maxDepth < ProbCut.MIN_DEPTH) {
+			throw new IllegalArgumentException("Maximum depth must be at least " + ProbCut.MIN_DEPTH + ".");
+		}
+		this.evaluator = evaluator;
+		this.maxDepth = maxDepth;
+		this.sums = new double[ProbCut.PHASES][maxDepth + 1][2][6];
+	}
+
+	/**
+	 * @param phase
+	 *          A stage of the game.
+	 * @return The number of positions of that stage added so far.
+	 */
+	public int getPositions(int phase) {
+		return this.positions[phase];
+	}
+
+	/**
+	 * Searches a position to every depth and adds its scores to the
+	 * regressions. Positions close enough to the end for a search to reach won or
+	 * lost games are skipped.
+	 *
+	 * @param board
+	 *          A position with the current player able to move.
+	 * @return True if the position was added.
+	 */
+	public boolean add(Board board) {
+		// A new engine, so that no search finds deeper results of another
+		SearchEngine engine = new SearchEngine(this.evaluator, 4, 1);
+		int[] scores = new int[this.maxDepth + 1];
+		for (int depth = 1; depth <= this.maxDepth; ++depth) {
+			engine.search(board, depth);
+			scores[depth] = engine.getScore();
+			if (Math.abs(scores[depth]) >= SearchEngine.WIN_SCORE / 2) {
+				return false;
+			}
+		}
+		int phase = ProbCut.getPhase(Long.bitCount(board.getDiscs(Player.BLACK) | board.getDiscs(Player.WHITE)));
+		for (int depth = ProbCut.MIN_DEPTH; depth <= this.maxDepth; ++depth) {
+			int[] shallowDepths = ProbCut.getShallowDepths(depth);
+			for (int check = 0; check < shallowDepths.length; ++check) {
+				double x = scores[shallowDepths[check]];
+				double y = scores[depth];
+				double[] sum = this.sums[phase][depth][check];
+				sum[0] += 1;
+				sum[1] += x;
+				sum[2] += y;
+				sum[3] += x * x;
+				sum[4] += x * y;
+				sum[5] += y * y;
+			}
+		}
+		++this.positions[phase];
+		return true;
+	}
+
+	/**
+	 * @return The parameters fitted to the positions added so far. Checks with
+	 *         fewer than two positions, or whose shallow scores do not vary, get
+	 *         parameters that never predict a cut.
+	 */
+	public ProbCut fit() {
+		ProbCut probCut = new ProbCut(this.maxDepth);
+		for (int phase = 0; phase < ProbCut.PHASES; ++phase) {
+			for (int depth = ProbCut.MIN_DEPTH; depth <= this.maxDepth; ++depth) {
+				for (int check = 0; check < ProbCut.getShallowDepths(depth).length; ++check) {
+					double[] sum = this.sums[phase][depth][check];
+					double n = sum[0];
+					double varianceX = n * sum[3] - sum[1] * sum[1];
+					if (n < 2 || varianceX <= 0) {
+						continue;
+					}
+					// Least squares, and the deviation of the residuals
+					double slope = (n * sum[4] - sum[1] * sum[2]) / varianceX;
+					double intercept = (sum[2] - slope * sum[1]) / n;
+					double residuals = sum[5] - 2 * slope * sum[4] - 2 * intercept * sum[2] + slope * slope * sum[3]
+							+ 2 * slope * intercept * sum[1] + intercept * intercept * n;
+					double deviation = Math.sqrt(Math.max(residuals, 0) / (n - 1));
+					probCut.set(phase, depth, check, slope, intercept, deviation);
+				}
+			}
+		}
+		return probCut;
+	}
+
+	/**
+	 * Fits the parameters for the evaluator of {@link Group3} from positions of
+	 * games {@link Group3} plays against itself, after a few random moves so that
+	 * the games differ, and saves them. The arguments are the file to write, and
+	 * optionally the number of positions of each stage (default 100) and the
+	 * maximum depth (default {@link ProbCut#DEFAULT_MAX_DEPTH}).
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 3) {
+			System.err.println("Usage: ProbCutFitter <parameters> [positions per stage] [max depth]");
+			System.exit(2);
+		}
+		int perPhase = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		int maxDepth = args.length > 2 ? Integer.parseInt(args[2]) : ProbCut.DEFAULT_MAX_DEPTH;
+		ProbCutFitter fitter = new ProbCutFitter(new StabilityEvaluator(new PositionalEvaluator()), maxDepth);
+		Group3 strategy = new Group3();
+		Random random = new Random(12345L);
+		while (!fitter.isFull(perPhase)) {
+			for (Board board : selfPlay(strategy, random)) {
+				int phase = ProbCut.getPhase(Long.bitCount(board.getDiscs(Player.BLACK) | board.getDiscs(Player.WHITE)));
+				// A few positions of each game, so that the positions are not all alike
+				if (fitter.getPositions(phase) < perPhase && random.nextInt(8) == 0) {
+					fitter.add(board);
+				}
+			}
+			System.out.println(String.format("Positions of each stage: %d %d %d %d", fitter.getPositions(0),
+					fitter.getPositions(1), fitter.getPositions(2), fitter.getPositions(3)));
+		}
+		fitter.fit().save(Paths.get(args[0]));
+	}
+
+	/**
+	 * Utility method for checking whether every stage has enough positions.
+	 * Intended only for internal use.
+	 */
+	private boolean isFull(int perPhase) {
+		for (int phase = 0; phase < ProbCut.PHASES; ++phase) {
+			if (this.positions[phase] < perPhase) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Utility method for playing a game of a strategy against itself after 6
+	 * random moves. Intended only for internal use.
+	 *
+	 * @return The positions of the game in which the current player can move.
+	 */
+	private static List<Board> selfPlay(Strategy strategy, Random random) {
+		List<Board> boards = Lists.newArrayList();
+		Board board = new Board().withoutHistory();
+		while (!board.isComplete()) {
+			List<Square> possible = Lists.newArrayList(board.getCurrentPossibleSquares());
+			if (possible.isEmpty()) {
+				board = board.pass();
+				continue;
+			}
+			boards.add(board);
+			board = board.play(board.getMoveCount() < 6
+					? possible.get(random.nextInt(possible.size()))
+					: strategy.chooseSquare(board));
+		}
+		return boards;
+	}
+
+}
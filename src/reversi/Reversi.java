@@ -25,6 +25,8 @@ public class Reversi {
 	private Map<Player, Strategy> strategies; 
 	private long timeout; //The maximum time allowed to a strategy for choosing a square.
 	private TimeUnit timeoutUnit; //The unit of the timeout
+	private Map<Player, Long> thinkingNanos; //The time used by each strategy so far
+	private boolean ponderingAllowed = false; //Whether strategies may think on their opponent's time
 
 
 	/**
@@ -49,10 +51,29 @@ public class Reversi {
 		this.strategies.put(Player.WHITE, whiteStrategy);
 		this.timeout = timeout;
 		this.timeoutUnit = timeoutUnit;
+		this.thinkingNanos = new HashMap<>();
+		this.thinkingNanos.put(Player.BLACK, 0L);
+		this.thinkingNanos.put(Player.WHITE, 0L);
 	}
 
 	/**
-	 * Plays the strategies on the given Reversi board.
+	 * Sets whether a {@link PonderingStrategy} may go on thinking while its
+	 * opponent chooses a square. Not allowed unless set otherwise, since a
+	 * pondering strategy takes a processor from its opponent's timed turn, and
+	 * keeps a thread until it is closed.
+	 * 
+	 * @param ponderingAllowed
+	 *          True to let strategies ponder.
+	 */
+	public void setPonderingAllowed(boolean ponderingAllowed) {
+		this.ponderingAllowed = ponderingAllowed;
+	}
+
+	/**
+	 * Plays the strategies on the given Reversi board. If pondering is allowed, a
+	 * {@link PonderingStrategy} is told to start pondering after each square it
+	 * chooses, and it is told to stop before its next turn, when the game ends,
+	 * or when a strategy times out.
 	 * 
 	 * @param board
 	 *          The board in its initial state.
@@ -62,6 +83,23 @@ public class Reversi {
 	 */
 	public Board play(Board board) throws StrategyTimedOutException {
 		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			return this.play(board, executor);
+		} finally {
+			executor.shutdownNow();
+			for (Strategy strategy : this.strategies.values()) {
+				if (strategy instanceof PonderingStrategy) {
+					((PonderingStrategy) strategy).stopPondering();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Utility method for playing the game on an executor, which the caller shuts
+	 * down. Intended only for internal use.
+	 */
+	private Board play(Board board, ExecutorService executor) throws StrategyTimedOutException {
 		Board curr = board;
 		while (!curr.isComplete()) {
 			if (curr.getCurrentPossibleSquares().isEmpty()) {
@@ -70,9 +108,19 @@ public class Reversi {
 				Player player = curr.getCurrentPlayer();
 				final Strategy strategy = this.strategies.get(player);
 				final Board boardForFuture = curr;
+				long start = System.nanoTime();
+				final long deadline = start + this.timeoutUnit.toNanos(this.timeout);
 				Future<Square> future = executor.submit(new Callable<Square>() {
 					@Override
 					public Square call() throws Exception {
+						// The opponent has moved, so stop thinking about its reply, on the
+						// strategy's own time
+						if (strategy instanceof PonderingStrategy) {
+							((PonderingStrategy) strategy).stopPondering();
+						}
+						if (strategy instanceof TimedStrategy) {
+							return ((TimedStrategy) strategy).chooseSquare(boardForFuture, deadline);
+						}
 						return strategy.chooseSquare(boardForFuture);
 					}
 				});
@@ -81,12 +129,16 @@ public class Reversi {
 					square = future.get(this.timeout, this.timeoutUnit);
 				} catch (InterruptedException | ExecutionException | TimeoutException e) {
 					future.cancel(true);
-					throw new StrategyTimedOutException(strategy, this.strategies.get(player.opponent()));
+					this.addThinkingTime(player, start);
+					throw new StrategyTimedOutException(strategy, this.strategies.get(player.opponent()), curr);
 				}
+				this.addThinkingTime(player, start);
 				curr = curr.play(square);
+				if (this.ponderingAllowed && strategy instanceof PonderingStrategy && !curr.isComplete()) {
+					((PonderingStrategy) strategy).startPondering(curr);
+				}
 			}
 		}
-		executor.shutdownNow();
 		return curr;
 	}
 
@@ -101,6 +153,27 @@ public class Reversi {
 		return this.strategies.get(board.getWinner());
 	}
 
+	/**
+	 * Gets the time a strategy has spent choosing squares in this game.
+	 * 
+	 * @param player
+	 *          The player whose strategy's time is wanted.
+	 * @param unit
+	 *          The unit of the returned time.
+	 * @return The total time taken by the strategy to choose its squares.
+	 */
+	public long getThinkingTime(Player player, TimeUnit unit) {
+		return unit.convert(this.thinkingNanos.get(player), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Utility method for recording the time a strategy took to choose a square.
+	 * Intended only for internal use.
+	 */
+	private void addThinkingTime(Player player, long start) {
+		this.thinkingNanos.put(player, this.thinkingNanos.get(player) + System.nanoTime() - start);
+	}
+
 
 	
 }
@@ -1,84 +1,65 @@
 package reversi;
 
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-import com.google.common.base.Functions;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Ordering;
-
 import strategy.*;
 
 public class ReversiTournament {
 	/**
-	 * Runs a round-robin tournament over Reversi strategies.
+	 * Runs a round-robin tournament over Reversi strategies, playing games at the
+	 * same time on as many threads as there are processors, or as many as the
+	 * optional second argument says. Every game is appended to the game archive
+	 * named by the first argument, or to {@code tournament.archive} if there are
+	 * no arguments.
 	 */
 	public static void main(String[] args) throws Exception {
 		String message = "%s will not capture any pieces if placed at (%d,%d)";
 		Player player = Player.BLACK;
-		Square square = new Square(1, 1);
+		Square square = Square.of(1, 1);
 
 		//throw new IllegalArgumentException(String.format(message, player, square));
 		int nGames = 5; 
 		long timeout = 1;
 		TimeUnit timeoutUnit = TimeUnit.SECONDS;
 
-		// List of the strategies in the tournament 
-		List<Strategy> strategies = Lists.newArrayList();
-		
-		strategies.add(new Group3());
-		strategies.add(new RandomStrategy());
-//		strategies.add(new Human());
-		
-		// The number of wins of each strategy 
-		Map<Strategy, Integer> wins = Maps.newHashMap();
-		for (Strategy strategy : strategies) {
-			wins.put(strategy, 0);
+		// The strategies in the tournament, each creating a new strategy for every
+		// game so that games can be played at the same time
+		Tournament tournament = new Tournament(timeout, timeoutUnit);
+		tournament.add(Group3.class.getName(), new StrategyFactory() {
+			@Override
+			public Strategy newStrategy() {
+				return new Group3();
+			}
+		});
+		tournament.add(RandomStrategy.class.getName(), new StrategyFactory() {
+			@Override
+			public Strategy newStrategy() {
+				return new RandomStrategy();
+			}
+		});
+		if (args.length > 1) {
+			tournament.setThreads(Integer.parseInt(args[1]));
 		}
+		
+		// The archive of all games played
+		GameArchiveWriter archive = new GameArchiveWriter(Paths.get(args.length > 0 ? args[0] : "tournament.archive"));
+		tournament.setArchive(archive);
+
 		long startTime = System.currentTimeMillis();//the start time
 		// Run N rounds, pairing each strategy with each other strategy. There will
 		// actually be 2N games since each strategy gets to be both black and white
-		Board board = new Board();
-		for (int game = 0; game < nGames; ++game) {
-			for (int i = 0; i < strategies.size(); ++i) {
-				for (int j = i + 1; j < strategies.size(); ++j) {
-					Strategy strategy1 = strategies.get(i);
-					Strategy strategy2 = strategies.get(j);
-					Reversi reversi;
-					Strategy winner;
-
-					// first game: strategy1=BLACK, strategy2=WHITE
-					reversi = new Reversi(strategy1, strategy2, timeout, timeoutUnit);
-					try {
-						winner = reversi.getWinner(reversi.play(board));
-					} catch (StrategyTimedOutException e) {
-						winner = e.getOpponentStrategy();
-					}
-					// If one of the strategies timed out, the opponent is considered the winner 
-					if (winner != null) {
-						wins.put(winner, wins.get(winner) + 1);
-					}
-
-					// second game: strategy2=BLACK, strategy1=WHITE
-					reversi = new Reversi(strategy2, strategy1, timeout, timeoutUnit);
-					try {
-						winner = reversi.getWinner(reversi.play(board));
-					} catch (StrategyTimedOutException e) {
-						winner = e.getOpponentStrategy();
-					}
-					if (winner != null) {
-						wins.put(winner, wins.get(winner) + 1);
-					}
-				}
-			}
+		List<Tournament.Standing> standings;
+		try {
+			standings = tournament.play(nGames);
+		} finally {
+			archive.close();
 		}
 
-		// rank strategies by number of wins
-		Ordering<Strategy> byWins = Ordering.natural().onResultOf(Functions.forMap(wins)).reverse();
-		for (Strategy strategy : byWins.sortedCopy(wins.keySet())) {
-			System.out.printf("%4d\t%s\n", wins.get(strategy), strategy.getClass().getName());
+		// strategies ranked by number of wins
+		for (Tournament.Standing standing : standings) {
+			System.out.printf("%4d\t%s\n", standing.getWins(), standing.getName());
 		}
 		long endTime = System.currentTimeMillis();//the time time
 		System.out.println("Processing time: " + (endTime - startTime) + " milliseconds");//process time
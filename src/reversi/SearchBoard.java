@@ -0,0 +1,297 @@
+package reversi;
+
+/**
+ * A mutable Reversi board for tree search. Unlike {@link Board}, playing a move
+ * changes this board in place and records the captured pieces on an undo stack,
+ * so that {@link #undo()} can restore the previous position. No objects are
+ * allocated while playing or undoing moves.
+ * <p>
+ * Squares are identified by their index, as returned by
+ * {@link Square#getIndex()}, and sets of squares by 64-bit masks with bit
+ * {@code row * 8 + column} set for square (row, column).
+ * <p>
+ * A search board can also keep running sums of square weights, called
+ * features, for each player. Playing or undoing a move updates each sum by the
+ * weights of the placed and captured pieces only, so that evaluating a position
+ * needs no pass over the board. See {@link IncrementalEvaluator}.
+ */
+public class SearchBoard {
+
+	/**
+	 * The maximum number of moves and passes that can be undone. A game never
+	 * lasts longer than this.
+	 */
+	private static final int MAX_PLIES = 128;
+
+	private static final int[][] NO_FEATURES = new int[0][];
+
+	private Player player;
+	private long playerDiscs;
+	private long opponentDiscs;
+	private long key;
+	private int ply;
+	private final int[] squareStack = new int[MAX_PLIES];
+	private final long[] captureStack = new long[MAX_PLIES];
+	private final long[] keyStack = new long[MAX_PLIES];
+	private final int[][] features;
+	private int[] playerSums;
+	private int[] opponentSums;
+
+	/**
+	 * Creates a search board with the same layout and current player as the given
+	 * board.
+	 *
+	 * @param board
+	 *          The board at the root of the search.
+	 */
+	public SearchBoard(Board board) {
+		this(board, NO_FEATURES);
+	}
+
+	/**
+	 * Creates a search board with the same layout and current player as the given
+	 * board, which keeps the sums of the given features.
+	 *
+	 * @param board
+	 *          The board at the root of the search.
+	 * @param features
+	 *          The weight of each square, indexed by {@link Square#getIndex()},
+	 *          for each feature. The arrays are not copied and must not be changed.
+	 */
+	public SearchBoard(Board board, int[][] features) {
+		this.player = board.getCurrentPlayer();
+		this.playerDiscs = board.getDiscs(this.player);
+		this.opponentDiscs = board.getDiscs(this.player.opponent());
+		this.key = board.getZobristKey();
+		this.features = features;
+		this.playerSums = new int[features.length];
+		this.opponentSums = new int[features.length];
+		for (int f = 0; f < features.length; ++f) {
+			if (features[f].length != 64) {
+				throw new IllegalArgumentException("A feature must have a weight for each of the 64 squares.");
+			}
+			this.playerSums[f] = sum(features[f], this.playerDiscs);
+			this.opponentSums[f] = sum(features[f], this.opponentDiscs);
+		}
+	}
+
+	/**
+	 * @return An immutable board with the same layout and current player as this
+	 *         one. The moves played on this search board are not included in its
+	 *         {@link Board#getMoves()}.
+	 */
+	public Board toBoard() {
+		return new Board(this.player, this.getDiscs(Player.BLACK), this.getDiscs(Player.WHITE));
+	}
+
+	/**
+	 * @return The player that gets to choose a square next.
+	 */
+	public Player getCurrentPlayer() {
+		return this.player;
+	}
+
+	/**
+	 * @return The Zobrist key of the current position, as defined by
+	 *         {@link Board#getZobristKey()}.
+	 */
+	public long getZobristKey() {
+		return this.key;
+	}
+
+	/**
+	 * @param owner
+	 *          A player.
+	 * @return The squares occupied by the given player.
+	 */
+	public long getDiscs(Player owner) {
+		return owner == this.player ? this.playerDiscs : this.opponentDiscs;
+	}
+
+	/**
+	 * @return The squares occupied by the current player.
+	 */
+	public long getPlayerDiscs() {
+		return this.playerDiscs;
+	}
+
+	/**
+	 * @return The squares occupied by the opponent of the current player.
+	 */
+	public long getOpponentDiscs() {
+		return this.opponentDiscs;
+	}
+
+	/**
+	 * @return The number of features whose sums this board keeps.
+	 */
+	public int getFeatureCount() {
+		return this.features.length;
+	}
+
+	/**
+	 * @param feature
+	 *          The position of the feature in the array the board was created with.
+	 * @return The sum of the feature's weights over the squares occupied by the
+	 *         current player.
+	 */
+	public int getPlayerFeature(int feature) {
+		return this.playerSums[feature];
+	}
+
+	/**
+	 * @param feature
+	 *          The position of the feature in the array the board was created with.
+	 * @return The sum of the feature's weights over the squares occupied by the
+	 *         opponent of the current player.
+	 */
+	public int getOpponentFeature(int feature) {
+		return this.opponentSums[feature];
+	}
+
+	/**
+	 * @return The number of squares not occupied by either player.
+	 */
+	public int getEmptyCount() {
+		return 64 - Long.bitCount(this.playerDiscs | this.opponentDiscs);
+	}
+
+	/**
+	 * @return The squares the current player may play.
+	 */
+	public long getPossibleMoves() {
+		return Bitboards.moves(this.playerDiscs, this.opponentDiscs);
+	}
+
+	/**
+	 * @return The squares the opponent of the current player could play if it were
+	 *         their turn instead.
+	 */
+	public long getOpponentPossibleMoves() {
+		return Bitboards.moves(this.opponentDiscs, this.playerDiscs);
+	}
+
+	/**
+	 * @return True if no squares remain that can be played by either player, false
+	 *         otherwise.
+	 */
+	public boolean isComplete() {
+		return this.getPossibleMoves() == 0L && this.getOpponentPossibleMoves() == 0L;
+	}
+
+	/**
+	 * @return The number of moves and passes that can currently be undone.
+	 */
+	public int getPly() {
+		return this.ply;
+	}
+
+	/**
+	 * Places a piece for the current player at the given square, captures the
+	 * enclosed pieces and hands the turn to the opponent.
+	 *
+	 * @param index
+	 *          The index of an empty square where the current player captures at
+	 *          least one piece.
+	 * @return The captured pieces.
+	 */
+	public long play(int index) {
+		long bit = 1L << index;
+		long captures = (bit & (this.playerDiscs | this.opponentDiscs)) == 0L
+				? Bitboards.flips(this.playerDiscs, this.opponentDiscs, index)
+				: 0L;
+		if (captures == 0L) {
+			String message = "%s cannot play at %s";
+			throw new IllegalArgumentException(String.format(message, this.player, Square.fromIndex(index)));
+		}
+		this.push(index, captures);
+		this.key ^= Zobrist.move(this.player, index, captures);
+		for (int f = 0; f < this.features.length; ++f) {
+			int captured = sum(this.features[f], captures);
+			this.playerSums[f] += this.features[f][index] + captured;
+			this.opponentSums[f] -= captured;
+		}
+		long mover = this.playerDiscs | bit | captures;
+		this.playerDiscs = this.opponentDiscs ^ captures;
+		this.opponentDiscs = mover;
+		this.swapSums();
+		this.player = this.player.opponent();
+		return captures;
+	}
+
+	/**
+	 * Passes the current player's turn. The caller is responsible for only passing
+	 * when the current player has no possible moves.
+	 */
+	public void pass() {
+		this.push(-1, 0L);
+		this.key ^= Zobrist.WHITE_TO_MOVE;
+		long mover = this.playerDiscs;
+		this.playerDiscs = this.opponentDiscs;
+		this.opponentDiscs = mover;
+		this.swapSums();
+		this.player = this.player.opponent();
+	}
+
+	/**
+	 * Takes back the most recent move or pass.
+	 */
+	public void undo() {
+		if (this.ply == 0) {
+			throw new IllegalStateException("there is no move to undo");
+		}
+		--this.ply;
+		int index = this.squareStack[this.ply];
+		long captures = this.captureStack[this.ply];
+		this.key = this.keyStack[this.ply];
+		long placed = index < 0 ? 0L : 1L << index;
+		if (index >= 0) {
+			for (int f = 0; f < this.features.length; ++f) {
+				int captured = sum(this.features[f], captures);
+				this.opponentSums[f] -= this.features[f][index] + captured;
+				this.playerSums[f] += captured;
+			}
+		}
+		long mover = this.opponentDiscs & ~(placed | captures);
+		this.opponentDiscs = this.playerDiscs | captures;
+		this.playerDiscs = mover;
+		this.swapSums();
+		this.player = this.player.opponent();
+	}
+
+	/**
+	 * Utility method for handing the feature sums of the current player to their
+	 * opponent and back. Intended only for internal use.
+	 */
+	private void swapSums() {
+		int[] sums = this.playerSums;
+		this.playerSums = this.opponentSums;
+		this.opponentSums = sums;
+	}
+
+	/**
+	 * @return The sum of the weights over the given squares.
+	 */
+	private static int sum(int[] weights, long squares) {
+		int sum = 0;
+		for (; squares != 0L; squares &= squares - 1) {
+			sum += weights[Long.numberOfTrailingZeros(squares)];
+		}
+		return sum;
+	}
+
+	/**
+	 * Utility method for recording a move on the undo stack. Intended only for
+	 * internal use.
+	 */
+	private void push(int index, long captures) {
+		if (this.ply == MAX_PLIES) {
+			throw new IllegalStateException("too many moves to undo");
+		}
+		this.squareStack[this.ply] = index;
+		this.captureStack[this.ply] = captures;
+		this.keyStack[this.ply] = this.key;
+		++this.ply;
+	}
+
+}
@@ -0,0 +1,821 @@
+package reversi;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Chooses squares by looking ahead with principal variation search, a form of
+ * alpha-beta negamax, and scoring the positions reached with an
+ * {@link Evaluator}. The search plays and takes back moves on a
+ * {@link SearchBoard}, which keeps the sums of the evaluator's features if it
+ * is an {@link IncrementalEvaluator}, and stores its results in a
+ * {@link TranspositionTable}.
+ * Moves are tried in order of the best move of earlier searches, killer moves,
+ * square type and history, so that most cutoffs come early.
+ * <p>
+ * Given a deadline, the engine deepens its search one ply at a time for as long
+ * as the deadline allows, each search expecting a score close to the one
+ * before. Near the end of the game it solves the game with an
+ * {@link EndgameSolver} instead, when that can be done in time.
+ * <p>
+ * With more than one thread, helper threads run the same iterative deepening
+ * search alongside the main one (Lazy SMP). They share only the transposition
+ * table, so each thread finds the results of the others there; the square
+ * chosen is always the main thread's.
+ * <p>
+ * Given {@link ProbCut} parameters, the search is selective: away from the
+ * principal variation, a node is cut when shallow searches predict that the
+ * deep search would fail high or low (Multi-ProbCut). Without them, every move
+ * is searched to the full depth.
+ * <p>
+ * What the searches do is counted in {@link SearchStatistics}, which can be
+ * read at any time or watched through JMX.
+ * <p>
+ * Between searches, the engine can ponder: search the position the opponent is
+ * to move in on a background thread, until told to stop. The opponent's replies
+ * are then already in the transposition table when the next search starts.
+ * <p>
+ * An engine searches one position at a time; concurrent calls wait for each
+ * other, and a search stops any pondering first. Separate engines share
+ * nothing. An engine keeps its helper threads, and its pondering thread once
+ * it has pondered, between searches, so it should be closed once it is no
+ * longer needed.
+ */
+public class SearchEngine implements AutoCloseable {
+
+	/**
+	 * The score of a won game, not counting the disc differential, which is added
+	 * to it. Evaluators score unfinished games strictly between this and its
+	 * negation.
+	 */
+	public static final int WIN_SCORE = 100000;
+
+	/**
+	 * Higher than any score.
+	 */
+	private static final int MAX_SCORE = WIN_SCORE + 65;
+
+	/**
+	 * How far from the score of the previous depth the root search first looks.
+	 */
+	private static final int ASPIRATION_WINDOW = 20;
+
+	/**
+	 * A game never lasts more moves and passes than this.
+	 */
+	private static final int MAX_PLY = 128;
+
+	private static final int MAX_HISTORY = (1 << 24) - 1;
+
+	/**
+	 * How many deviations outside the window a shallow search must predict the
+	 * deep one to be for a cut.
+	 */
+	private static final double PROBCUT_THRESHOLD = 1.5;
+
+	/**
+	 * Windows past this score are never cut, since the scores of won and lost
+	 * games do not follow the evaluator.
+	 */
+	private static final int PROBCUT_MAX_SCORE = WIN_SCORE / 2;
+
+	/**
+	 * The number of empty squares from which the game is solved exactly, unless
+	 * configured otherwise.
+	 */
+	private static final int DEFAULT_ENDGAME_EMPTIES = 16;
+
+	/**
+	 * How many more empty squares than that the game is still solved for a win,
+	 * loss or draw.
+	 */
+	private static final int WIN_LOSS_DRAW_EMPTIES = 4;
+
+	/**
+	 * How early to try the moves to each square, other things being equal: corners
+	 * first and the squares diagonally next to them last.
+	 */
+	private static final int[] SQUARE_ORDER = {
+			2, 1, 1, 1, 1, 1, 1, 2,
+			1, 0, 1, 1, 1, 1, 0, 1,
+			1, 1, 1, 1, 1, 1, 1, 1,
+			1, 1, 1, 1, 1, 1, 1, 1,
+			1, 1, 1, 1, 1, 1, 1, 1,
+			1, 1, 1, 1, 1, 1, 1, 1,
+			1, 0, 1, 1, 1, 1, 0, 1,
+			2, 1, 1, 1, 1, 1, 1, 2 };
+
+	private final Evaluator evaluator;
+	private final int[][] features;
+	private final TranspositionTable table;
+	private final int tableMegabytes;
+	private final int threads;
+	private final ExecutorService helpers;
+	private volatile int maxDepth = MAX_PLY;
+	private volatile int endgameEmpties = DEFAULT_ENDGAME_EMPTIES;
+	private volatile ProbCut probCut;
+	private volatile SearchStatistics statistics = new SearchStatistics();
+	private EndgameSolver solver;
+	private int score;
+
+	// The background search while pondering, the flag that cancels it, and
+	// whether the engine has been closed, after which it no longer ponders
+	private final Object ponderLock = new Object();
+	private ExecutorService ponderer;
+	private Future<?> pondering;
+	private AtomicBoolean ponderCancelled;
+	private boolean closed;
+
+	/**
+	 * Creates an engine.
+	 *
+	 * @param evaluator
+	 *          Scores the positions the search reaches.
+	 * @param tableMegabytes
+	 *          The memory budget of the transposition table, and of the endgame
+	 *          solver's table.
+	 * @param threads
+	 *          The number of threads to search with.
+	 */
+	public SearchEngine(Evaluator evaluator, int tableMegabytes, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be greater than 0.");
+		}
+		this.evaluator = evaluator;
+		this.features = evaluator instanceof IncrementalEvaluator
+				? ((IncrementalEvaluator) evaluator).getFeatures()
+				: new int[0][];
+		this.table = new TranspositionTable(tableMegabytes);
+		this.tableMegabytes = tableMegabytes;
+		this.threads = threads;
+		this.helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1,
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("SearchEngine-helper-%d").build());
+	}
+
+	/**
+	 * Limits how deep a search with a deadline may go.
+	 *
+	 * @param maxDepth
+	 *          The largest number of moves to look ahead.
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Maximum depth must be greater than 0.");
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Sets how many empty squares are left when a search with a deadline starts
+	 * solving the game exactly. With a few more, it only solves whether the game
+	 * is won.
+	 *
+	 * @param endgameEmpties
+	 *          The number of empty squares, or 0 never to solve the game.
+	 */
+	public void setEndgameEmpties(int endgameEmpties) {
+		if (endgameEmpties < 0) {
+			throw new IllegalArgumentException("Number of empty squares must not be negative.");
+		}
+		this.endgameEmpties = endgameEmpties;
+	}
+
+	/**
+	 * Makes the search selective, or turns selectivity off for exact analysis.
+	 *
+	 * @param probCut
+	 *          The parameters of Multi-ProbCut, fitted for this engine's
+	 *          evaluator, or null to search every move to the full depth.
+	 */
+	public void setProbCut(ProbCut probCut) {
+		this.probCut = probCut;
+	}
+
+	/**
+	 * Sets where the searches are counted, so that several engines can share one
+	 * set of statistics, or turns counting off.
+	 *
+	 * @param statistics
+	 *          The statistics to add the counts of each search to, or null not to
+	 *          count.
+	 */
+	public void setStatistics(SearchStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return The statistics the searches are counted in, or null if they are
+	 *         not counted. Every engine starts with statistics of its own.
+	 */
+	public SearchStatistics getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * @return The score for the player to move of the last search that was not
+	 *         pondering, as scored by the evaluator.
+	 */
+	public synchronized int getScore() {
+		return this.score;
+	}
+
+	/**
+	 * Searches exactly the given number of moves ahead, however long it takes.
+	 *
+	 * @param board
+	 *          The position to choose a square for.
+	 * @param depth
+	 *          The number of moves to look ahead.
+	 * @return The best square found, or {@link Square#PASS} if the current player
+	 *         has to pass.
+	 */
+	public Square search(Board board, int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("Maximum depth must be greater than 0.");
+		}
+		this.stopPondering();
+		return this.search(board, depth, depth, Long.MAX_VALUE, Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * Searches one ply deeper at a time until the time runs out, or solves the
+	 * game near its end.
+	 *
+	 * @param board
+	 *          The position to choose a square for.
+	 * @param deadline
+	 *          The value of {@link System#nanoTime()} by which the square must be
+	 *          returned.
+	 * @return The best square of the deepest search that finished, or
+	 *         {@link Square#PASS} if the current player has to pass.
+	 */
+	public Square search(Board board, long deadline) {
+		this.stopPondering();
+		int empties = 64 - Long.bitCount(board.getDiscs(Player.BLACK) | board.getDiscs(Player.WHITE));
+
+		// Near the end, try to solve the game in under half of the time we would
+		// give a search, so that if it takes too long, or only proves that every
+		// move loses, the search still has time to go deep
+		int endgameEmpties = this.endgameEmpties;
+		if (endgameEmpties > 0 && empties <= endgameEmpties + WIN_LOSS_DRAW_EMPTIES) {
+			long now = System.nanoTime();
+			Square solved = this.solve(board, empties > endgameEmpties, now + (hardStop(now, deadline) - now) / 2);
+			if (solved != null) {
+				return solved;
+			}
+		}
+
+		// Don't start another search after a third of the time left, and give up on
+		// one after most of it
+		long now = System.nanoTime();
+		long softStop = now + (deadline - now) / 3;
+		return this.search(board, 1, Math.min(empties, this.maxDepth), softStop, hardStop(now, deadline), null);
+	}
+
+	/**
+	 * Utility method for finding when a search must give up to return by the
+	 * deadline. Intended only for internal use.
+	 */
+	private static long hardStop(long now, long deadline) {
+		return now + (deadline - now) * 4 / 5 - TimeUnit.MILLISECONDS.toNanos(20);
+	}
+
+	/**
+	 * Starts searching a position in the background, one ply deeper at a time,
+	 * until {@link #stopPondering()} is called or the search reaches its maximum
+	 * depth. Stops any earlier pondering first.
+	 *
+	 * @param board
+	 *          The position to search, usually with the opponent to move.
+	 */
+	public void startPondering(final Board board) {
+		synchronized (this.ponderLock) {
+			this.stopPondering();
+			if (board.isComplete() || this.closed) {
+				return;
+			}
+			if (this.ponderer == null) {
+				this.ponderer = Executors.newSingleThreadExecutor(
+						new ThreadFactoryBuilder().setDaemon(true).setNameFormat("SearchEngine-ponder-%d").build());
+			}
+			int empties = 64 - Long.bitCount(board.getDiscs(Player.BLACK) | board.getDiscs(Player.WHITE));
+			final int toDepth = Math.min(empties, this.maxDepth);
+			final AtomicBoolean cancelled = new AtomicBoolean();
+			this.ponderCancelled = cancelled;
+			this.pondering = this.ponderer.submit(new Runnable() {
+				@Override
+				public void run() {
+					SearchEngine.this.search(board, 1, toDepth, Long.MAX_VALUE, Long.MAX_VALUE, cancelled);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stops pondering, and waits until the background search has stopped. Does
+	 * nothing if the engine is not pondering.
+	 */
+	public void stopPondering() {
+		synchronized (this.ponderLock) {
+			if (this.pondering == null) {
+				return;
+			}
+			this.ponderCancelled.set(true);
+			try {
+				this.pondering.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("pondering failed", e.getCause());
+			} finally {
+				this.pondering = null;
+				this.ponderCancelled = null;
+			}
+		}
+	}
+
+	/**
+	 * Stops any pondering and releases the helper threads and the pondering
+	 * thread, once any running search has finished. The engine must not search
+	 * again after it is closed, and no longer ponders.
+	 */
+	@Override
+	public void close() {
+		synchronized (this.ponderLock) {
+			this.stopPondering();
+			this.closed = true;
+			if (this.ponderer != null) {
+				this.ponderer.shutdown();
+				this.ponderer = null;
+			}
+		}
+		synchronized (this) {
+			if (this.helpers != null) {
+				this.helpers.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Utility method for solving the game with the endgame solver. Intended only
+	 * for internal use.
+	 *
+	 * @return The perfect square, or null if the game could not be solved in time
+	 *         or is only known to be lost.
+	 */
+	private synchronized Square solve(Board board, boolean winLossDraw, long stopTime) {
+		if (this.solver == null) {
+			this.solver = new EndgameSolver(this.tableMegabytes);
+		}
+		Square solved = this.solver.solve(board, winLossDraw, stopTime);
+		// When all moves lose, search for the one most likely to make the opponent go
+		// wrong
+		if (solved == null || (winLossDraw && this.solver.getScore() < 0)) {
+			return null;
+		}
+		int diff = this.solver.getScore();
+		this.score = diff > 0 ? WIN_SCORE + (winLossDraw ? 0 : diff) : diff < 0 ? -WIN_SCORE + diff : 0;
+		return solved;
+	}
+
+	/**
+	 * Utility method for running the main search on this thread and the helper
+	 * searches on the others. Intended only for internal use.
+	 *
+	 * @param cancelled
+	 *          Set when the main search should stop as soon as possible, or null
+	 *          if it is not pondering and should record its score.
+	 * @return The best square of the deepest search that finished, or null if
+	 *         it was cancelled before any finished.
+	 */
+	private synchronized Square search(Board board, int fromDepth, int toDepth, long softStop, long hardStop,
+			AtomicBoolean cancelled) {
+		this.table.newSearch();
+		SearchStatistics statistics = this.statistics;
+		long start = System.nanoTime();
+		AtomicBoolean finished = new AtomicBoolean();
+		List<Searcher> helpers = Lists.newArrayList();
+		List<Future<?>> running = Lists.newArrayList();
+		for (int i = 1; i < this.threads; ++i) {
+			// Half of the helpers start a ply deeper, so that the threads spread over two
+			// depths, and all of them may go a ply past the main search to leave deeper
+			// results for it
+			final Searcher helper = new Searcher(board, finished, statistics != null);
+			helpers.add(helper);
+			final int helperFromDepth = fromDepth + (i & 1);
+			final int helperToDepth = toDepth + 1;
+			final long helperStop = hardStop;
+			running.add(this.helpers.submit(new Runnable() {
+				@Override
+				public void run() {
+					helper.deepen(helperFromDepth, helperToDepth, Long.MAX_VALUE, helperStop);
+				}
+			}));
+		}
+
+		Searcher searcher = new Searcher(board, cancelled == null ? new AtomicBoolean() : cancelled,
+				statistics != null);
+		Square best = searcher.deepen(fromDepth, toDepth, softStop, hardStop);
+		if (cancelled == null) {
+			this.score = searcher.score;
+		}
+
+		// Stop the helpers and wait for them, so that none is still searching when we
+		// return
+		finished.set(true);
+		for (Future<?> future : running) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("helper search failed", e.getCause());
+			}
+		}
+
+		// Count the search once all threads have stopped counting
+		if (statistics != null) {
+			for (Searcher helper : helpers) {
+				searcher.counts.add(helper.counts);
+			}
+			statistics.record(searcher.counts, searcher.depthReached, System.nanoTime() - start, cancelled != null);
+		}
+		return best;
+	}
+
+	/**
+	 * Utility method for scoring a position at the end of the search for the
+	 * player to move. Only a full board is scored as a finished game, since
+	 * finding out whether either player can move would cost more than the
+	 * evaluation itself. Intended only for internal use.
+	 */
+	private int evaluate(SearchBoard board) {
+		if (board.getEmptyCount() == 0) {
+			return finalScore(board);
+		}
+		return this.evaluator.evaluate(board);
+	}
+
+	/**
+	 * Utility method for scoring a finished game for the player to move. Intended
+	 * only for internal use.
+	 */
+	private static int finalScore(SearchBoard board) {
+		int diff = Long.bitCount(board.getPlayerDiscs()) - Long.bitCount(board.getOpponentDiscs());
+		return diff > 0 ? WIN_SCORE + diff : diff < 0 ? -WIN_SCORE + diff : 0;
+	}
+
+	/**
+	 * The state of one thread's search. Each thread plays on its own board, keeps
+	 * its own killer moves and history, and shares only the transposition table
+	 * with the others.
+	 */
+	private class Searcher {
+		private final Board root;
+		private final AtomicBoolean cancelled;
+
+		// Stop searching at this System.nanoTime(), and check it every few nodes
+		private long stopTime = Long.MAX_VALUE;
+		private int nodes;
+
+		// The best move found at the root by the latest search, and the score and
+		// depth of the deepest search that finished
+		private int rootMove;
+		private int score;
+		private int depthReached;
+
+		// What this thread's search did, or null if it is not counted
+		private final SearchStatistics.Counts counts;
+
+		// The parameters of Multi-ProbCut, or null if the search is not selective
+		private final ProbCut probCut = SearchEngine.this.probCut;
+
+		// The moves of each ply, and how early they should be tried
+		private final int[][] moveLists = new int[MAX_PLY][64];
+		private final int[][] moveOrders = new int[MAX_PLY][64];
+
+		// The last two moves of each ply that caused a cutoff, and how often each
+		// square of each player did
+		private final int[][] killers = new int[MAX_PLY][2];
+		private final int[][] history = new int[2][64];
+
+		/**
+		 * @param root
+		 *          The position to search from.
+		 * @param cancelled
+		 *          Set when the search should stop as soon as possible.
+		 * @param counting
+		 *          True to count what the search does.
+		 */
+		private Searcher(Board root, AtomicBoolean cancelled, boolean counting) {
+			this.root = root;
+			this.cancelled = cancelled;
+			this.counts = counting ? new SearchStatistics.Counts() : null;
+			for (int[] ply : this.killers) {
+				Arrays.fill(ply, TranspositionTable.NO_MOVE);
+			}
+		}
+
+		/**
+		 * Searches one ply deeper at a time. Each search after the first expects a
+		 * score close to the one before, and only widens its window when it is not.
+		 *
+		 * @param fromDepth
+		 *          The depth of the first search, which is always finished.
+		 * @param toDepth
+		 *          The depth of the last search.
+		 * @param softStop
+		 *          The System.nanoTime() after which no new search is started.
+		 * @param hardStop
+		 *          The System.nanoTime() at which a running search is given up.
+		 * @return The best square of the deepest search that finished.
+		 */
+		private Square deepen(int fromDepth, int toDepth, long softStop, long hardStop) {
+			Square best = null;
+			for (int depth = fromDepth; depth <= toDepth; ++depth) {
+				// Always finish the first search, so that we have a move to play
+				this.stopTime = depth == fromDepth && !this.cancelled.get() ? Long.MAX_VALUE : hardStop;
+				try {
+					this.score = this.aspirate(new SearchBoard(this.root, SearchEngine.this.features), depth, this.score,
+							depth == fromDepth);
+				} catch (SearchTimeout e) {
+					break;
+				}
+				this.depthReached = depth;
+				best = this.rootMove == TranspositionTable.NO_MOVE ? Square.PASS : Square.fromIndex(this.rootMove);
+				if (System.nanoTime() > softStop || this.cancelled.get()) {
+					break;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Searches the root within a window around the expected score, and searches
+		 * again with a wider window whenever the score falls outside it.
+		 *
+		 * @param fullWindow
+		 *          True to search without a window, if there is no expected score.
+		 * @return The score of the root for the current player.
+		 */
+		private int aspirate(SearchBoard board, int depth, int guess, boolean fullWindow) {
+			int delta = ASPIRATION_WINDOW;
+			int alpha = fullWindow ? -MAX_SCORE : Math.max(guess - delta, -MAX_SCORE);
+			int beta = fullWindow ? MAX_SCORE : Math.min(guess + delta, MAX_SCORE);
+			while (true) {
+				this.rootMove = TranspositionTable.NO_MOVE;
+				int score = this.negaMax(board, depth, 0, alpha, beta);
+				if (score <= alpha && alpha > -MAX_SCORE) {
+					alpha = Math.max(score - delta, -MAX_SCORE);
+				} else if (score >= beta && beta < MAX_SCORE) {
+					beta = Math.min(score + delta, MAX_SCORE);
+				} else {
+					return score;
+				}
+				delta *= 2;
+			}
+		}
+
+		/**
+		 * Principal variation search. The first move is searched with the full
+		 * window, and the others only to prove that they are no better, unless they
+		 * turn out to be.
+		 *
+		 * @param depth
+		 *          The number of moves still to look ahead.
+		 * @param ply
+		 *          The number of moves and passes played since the root.
+		 * @return The score of the board for the current player.
+		 */
+		private int negaMax(SearchBoard board, int depth, int ply, int alpha, int beta) {
+			SearchStatistics.Counts counts = this.counts;
+			if (counts != null) {
+				++counts.nodes;
+			}
+			if (depth == 0) {
+				if (counts != null) {
+					++counts.evaluations;
+				}
+				return SearchEngine.this.evaluate(board);
+			}
+			if ((++this.nodes & 1023) == 0 && (this.cancelled.get() || System.nanoTime() > this.stopTime)) {
+				throw TIMEOUT;
+			}
+
+			long moves = board.getPossibleMoves();
+			if (moves == 0L) {
+				// The game is over if neither player can move, otherwise the turn passes
+				if (board.getOpponentPossibleMoves() == 0L) {
+					if (counts != null) {
+						++counts.evaluations;
+					}
+					return finalScore(board);
+				}
+				board.pass();
+				int score = -this.negaMax(board, depth, ply + 1, -beta, -alpha);
+				board.undo();
+				return score;
+			}
+
+			// Reuse an earlier search of this position, unless we are at the root and
+			// need its move
+			long key = board.getZobristKey();
+			long entry = SearchEngine.this.table.probe(key);
+			if (counts != null) {
+				++counts.hashProbes;
+				if (entry != 0L) {
+					++counts.hashHits;
+				}
+			}
+			int hashMove = TranspositionTable.NO_MOVE;
+			if (entry != 0L) {
+				hashMove = TranspositionTable.getMove(entry);
+				if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+					int stored = TranspositionTable.getScore(entry);
+					int bound = TranspositionTable.getBound(entry);
+					if (bound == TranspositionTable.EXACT
+							|| (bound == TranspositionTable.LOWER_BOUND && stored >= beta)
+							|| (bound == TranspositionTable.UPPER_BOUND && stored <= alpha)) {
+						return stored;
+					}
+				}
+			}
+
+			// Away from the principal variation, cut the node if shallow searches predict
+			// that this one would fail high or low
+			if (this.probCut != null && ply > 0 && beta - alpha == 1 && depth >= ProbCut.MIN_DEPTH
+					&& depth <= this.probCut.getMaxDepth() && Math.abs(beta) < PROBCUT_MAX_SCORE) {
+				int cut = this.probCut(board, depth, ply, beta);
+				if (cut != MAX_SCORE) {
+					if (counts != null) {
+						++counts.probCutCuts;
+					}
+					return cut;
+				}
+			}
+
+			int side = board.getCurrentPlayer() == Player.BLACK ? 0 : 1;
+			int count = this.orderMoves(moves, hashMove, ply, side);
+			int originalAlpha = alpha;
+			int bestScore = -MAX_SCORE;
+			int bestMove = TranspositionTable.NO_MOVE;
+			for (int i = 0; i < count; ++i) {
+				int move = this.nextMove(ply, i, count);
+
+				board.play(move);
+				int score;
+				if (i == 0) {
+					score = -this.negaMax(board, depth - 1, ply + 1, -beta, -alpha);
+				} else {
+					score = -this.negaMax(board, depth - 1, ply + 1, -alpha - 1, -alpha);
+					if (score > alpha && score < beta) {
+						score = -this.negaMax(board, depth - 1, ply + 1, -beta, -alpha);
+					}
+				}
+				board.undo();
+
+				if (score > bestScore) {
+					bestScore = score;
+					bestMove = move;
+					if (score > alpha) {
+						alpha = score;
+						if (ply == 0) {
+							this.rootMove = move;
+						}
+						// Cut off, remembering the move that caused it
+						if (alpha >= beta) {
+							if (counts != null) {
+								counts.cutoff(i);
+							}
+							if (this.killers[ply][0] != move) {
+								this.killers[ply][1] = this.killers[ply][0];
+								this.killers[ply][0] = move;
+							}
+							this.history[side][move] = Math.min(this.history[side][move] + depth * depth, MAX_HISTORY);
+							break;
+						}
+					}
+				}
+			}
+
+			// Remember the result, and whether it is exact or only a bound
+			int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+					: bestScore >= beta ? TranspositionTable.LOWER_BOUND
+					: TranspositionTable.EXACT;
+			SearchEngine.this.table.store(key, depth, bound, bestScore, bestMove);
+			return bestScore;
+		}
+
+		/**
+		 * Multi-ProbCut: searches a null window node to shallower depths, each with a
+		 * window that the deep search's score is expected to be outside of if the
+		 * shallow search's is.
+		 *
+		 * @param beta
+		 *          The upper bound of the null window, alpha being one less.
+		 * @return beta if the node is expected to fail high, alpha if it is
+		 *         expected to fail low, otherwise {@code MAX_SCORE}.
+		 */
+		private int probCut(SearchBoard board, int depth, int ply, int beta) {
+			int phase = ProbCut.getPhase(64 - board.getEmptyCount());
+			for (int check = 0; check < this.probCut.getCheckCount(depth); ++check) {
+				double slope = this.probCut.getSlope(phase, depth, check);
+				if (slope <= 0) {
+					continue;
+				}
+				double intercept = this.probCut.getIntercept(phase, depth, check);
+				double margin = PROBCUT_THRESHOLD * this.probCut.getDeviation(phase, depth, check);
+				int shallow = this.probCut.getShallowDepth(depth, check);
+				// The shallow score above which the deep one is likely at least beta, and
+				// below which it is likely at most alpha
+				int high = (int) Math.ceil((beta + margin - intercept) / slope);
+				if (high < PROBCUT_MAX_SCORE && this.negaMax(board, shallow, ply, high - 1, high) >= high) {
+					return beta;
+				}
+				int low = (int) Math.floor((beta - 1 - margin - intercept) / slope);
+				if (low > -PROBCUT_MAX_SCORE && this.negaMax(board, shallow, ply, low, low + 1) <= low) {
+					return beta - 1;
+				}
+			}
+			return MAX_SCORE;
+		}
+
+		/**
+		 * Lists the moves of a ply with how early each should be tried: the move the
+		 * transposition table remembers, then the killer moves, then the others by
+		 * square type and history.
+		 *
+		 * @param side
+		 *          0 if black is to move, 1 if white is.
+		 * @return The number of moves.
+		 */
+		private int orderMoves(long moves, int hashMove, int ply, int side) {
+			int[] list = this.moveLists[ply];
+			int[] order = this.moveOrders[ply];
+			int count = 0;
+			for (; moves != 0L; moves &= moves - 1) {
+				int move = Long.numberOfTrailingZeros(moves);
+				list[count] = move;
+				if (move == hashMove) {
+					order[count] = Integer.MAX_VALUE;
+				} else if (move == this.killers[ply][0]) {
+					order[count] = Integer.MAX_VALUE - 1;
+				} else if (move == this.killers[ply][1]) {
+					order[count] = Integer.MAX_VALUE - 2;
+				} else {
+					order[count] = SQUARE_ORDER[move] * (MAX_HISTORY + 1) + this.history[side][move];
+				}
+				++count;
+			}
+			return count;
+		}
+
+		/**
+		 * Finds the best of the moves not tried yet, and swaps it into place.
+		 *
+		 * @param i
+		 *          The number of moves already tried.
+		 * @return The index of the square to play next.
+		 */
+		private int nextMove(int ply, int i, int count) {
+			int[] list = this.moveLists[ply];
+			int[] order = this.moveOrders[ply];
+			int best = i;
+			for (int j = i + 1; j < count; ++j) {
+				if (order[j] > order[best]) {
+					best = j;
+				}
+			}
+			int move = list[best];
+			list[best] = list[i];
+			list[i] = move;
+			int value = order[best];
+			order[best] = order[i];
+			order[i] = value;
+			return move;
+		}
+	}
+
+	/**
+	 * Thrown to abandon a search that has run out of time.
+	 */
+	private static class SearchTimeout extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private SearchTimeout() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final SearchTimeout TIMEOUT = new SearchTimeout();
+
+}
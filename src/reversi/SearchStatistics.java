@@ -0,0 +1,396 @@
+package reversi;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what the searches of a {@link SearchEngine} do: the positions they
+ * visit and score, the cutoffs by the index of the move that caused them, the
+ * transposition table probes that find an entry, the depth they reach and the
+ * time they take. Pondering is counted too, but never as the last search.
+ * Positions solved by the {@link EndgameSolver} are not counted.
+ * <p>
+ * Each search thread counts in plain fields of its own, and adds them to the
+ * shared counts once, when its search ends, so that counting costs the search
+ * almost nothing and the threads never contend. The shared counts may be read
+ * at any time, as a {@link Snapshot} or through JMX once registered with
+ * {@link #register(String)}; one set of statistics may be shared by several
+ * engines.
+ */
+public class SearchStatistics implements SearchStatisticsMXBean {
+
+	/**
+	 * The number of move indexes cutoffs are counted by; the last counts all
+	 * later moves.
+	 */
+	public static final int CUTOFF_INDEXES = 8;
+
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder evaluations = new LongAdder();
+	private final LongAdder[] cutoffs = new LongAdder[CUTOFF_INDEXES];
+	private final LongAdder probCutCuts = new LongAdder();
+	private final LongAdder hashProbes = new LongAdder();
+	private final LongAdder hashHits = new LongAdder();
+	private final LongAdder depths = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+	private volatile Snapshot lastSearch = new Snapshot(0, new Counts(), 0, 0);
+
+	private ObjectName objectName;
+
+	/**
+	 * Creates statistics with all counts zero.
+	 */
+	public SearchStatistics() {
+		for (int i = 0; i < CUTOFF_INDEXES; ++i) {
+			this.cutoffs[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @return The counts so far. Searches that are still running are not
+	 *         included, and a search that ends while the counts are read may be
+	 *         only partly included.
+	 */
+	public Snapshot snapshot() {
+		Counts counts = new Counts();
+		counts.nodes = this.nodes.sum();
+		counts.evaluations = this.evaluations.sum();
+		for (int i = 0; i < CUTOFF_INDEXES; ++i) {
+			counts.cutoffs[i] = this.cutoffs[i].sum();
+		}
+		counts.probCutCuts = this.probCutCuts.sum();
+		counts.hashProbes = this.hashProbes.sum();
+		counts.hashHits = this.hashHits.sum();
+		return new Snapshot(this.searches.sum(), counts, this.depths.sum(), this.nanos.sum());
+	}
+
+	/**
+	 * @return The counts of the last search that was not pondering.
+	 */
+	public Snapshot getLastSearch() {
+		return this.lastSearch;
+	}
+
+	@Override
+	public long getSearches() {
+		return this.searches.sum();
+	}
+
+	@Override
+	public long getNodes() {
+		return this.nodes.sum();
+	}
+
+	@Override
+	public long getEvaluations() {
+		return this.evaluations.sum();
+	}
+
+	@Override
+	public long[] getBetaCutoffs() {
+		return this.snapshot().getBetaCutoffs();
+	}
+
+	@Override
+	public double getFirstMoveCutoffRate() {
+		return this.snapshot().getFirstMoveCutoffRate();
+	}
+
+	@Override
+	public long getProbCutCuts() {
+		return this.probCutCuts.sum();
+	}
+
+	@Override
+	public double getHashHitRate() {
+		return this.snapshot().getHashHitRate();
+	}
+
+	@Override
+	public double getMeanDepth() {
+		return this.snapshot().getMeanDepth();
+	}
+
+	@Override
+	public double getNodesPerSecond() {
+		return this.snapshot().getNodesPerSecond();
+	}
+
+	@Override
+	public int getLastDepth() {
+		return (int) this.lastSearch.getMeanDepth();
+	}
+
+	@Override
+	public long getLastNodes() {
+		return this.lastSearch.getNodes();
+	}
+
+	@Override
+	public double getLastNodesPerSecond() {
+		return this.lastSearch.getNodesPerSecond();
+	}
+
+	@Override
+	public void reset() {
+		this.searches.reset();
+		this.nodes.reset();
+		this.evaluations.reset();
+		for (LongAdder cutoff : this.cutoffs) {
+			cutoff.reset();
+		}
+		this.probCutCuts.reset();
+		this.hashProbes.reset();
+		this.hashHits.reset();
+		this.depths.reset();
+		this.nanos.reset();
+		this.lastSearch = new Snapshot(0, new Counts(), 0, 0);
+	}
+
+	/**
+	 * Makes these statistics visible through JMX, in the platform MBean server.
+	 *
+	 * @param name
+	 *          The name to register them under, unique among the statistics
+	 *          registered, such as the name of the strategy.
+	 * @return The object name they were registered under, in the domain
+	 *         {@code reversi}.
+	 */
+	public synchronized ObjectName register(String name) {
+		if (this.objectName != null) {
+			throw new IllegalStateException("Statistics are already registered as " + this.objectName + ".");
+		}
+		try {
+			ObjectName objectName = new ObjectName("reversi:type=SearchStatistics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.objectName = objectName;
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Cannot register statistics as " + name + ".", e);
+		}
+	}
+
+	/**
+	 * Removes these statistics from the platform MBean server. Does nothing if
+	 * they are not registered.
+	 */
+	public synchronized void unregister() {
+		if (this.objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+		} catch (JMException e) {
+			throw new IllegalStateException("Cannot unregister statistics " + this.objectName + ".", e);
+		} finally {
+			this.objectName = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.snapshot().toString();
+	}
+
+	/**
+	 * Adds the counts of one search, from all its threads. Intended only for
+	 * internal use.
+	 *
+	 * @param depth
+	 *          The depth of the deepest search that finished.
+	 * @param elapsed
+	 *          How long the search took, in nanoseconds.
+	 * @param pondering
+	 *          True if the search was pondering, and so is not the last search.
+	 */
+	void record(Counts counts, int depth, long elapsed, boolean pondering) {
+		this.searches.increment();
+		this.nodes.add(counts.nodes);
+		this.evaluations.add(counts.evaluations);
+		for (int i = 0; i < CUTOFF_INDEXES; ++i) {
+			this.cutoffs[i].add(counts.cutoffs[i]);
+		}
+		this.probCutCuts.add(counts.probCutCuts);
+		this.hashProbes.add(counts.hashProbes);
+		this.hashHits.add(counts.hashHits);
+		this.depths.add(depth);
+		this.nanos.add(elapsed);
+		if (!pondering) {
+			this.lastSearch = new Snapshot(1, counts.copy(), depth, elapsed);
+		}
+	}
+
+	/**
+	 * The counts of one search thread, kept in plain fields since only that
+	 * thread changes them. Intended only for internal use.
+	 */
+	static final class Counts {
+		long nodes;
+		long evaluations;
+		final long[] cutoffs = new long[CUTOFF_INDEXES];
+		long probCutCuts;
+		long hashProbes;
+		long hashHits;
+
+		/**
+		 * Counts a cutoff.
+		 *
+		 * @param index
+		 *          The index of the move that caused it, in the order tried.
+		 */
+		void cutoff(int index) {
+			++this.cutoffs[Math.min(index, CUTOFF_INDEXES - 1)];
+		}
+
+		void add(Counts counts) {
+			this.nodes += counts.nodes;
+			this.evaluations += counts.evaluations;
+			for (int i = 0; i < CUTOFF_INDEXES; ++i) {
+				this.cutoffs[i] += counts.cutoffs[i];
+			}
+			this.probCutCuts += counts.probCutCuts;
+			this.hashProbes += counts.hashProbes;
+			this.hashHits += counts.hashHits;
+		}
+
+		Counts copy() {
+			Counts copy = new Counts();
+			copy.add(this);
+			return copy;
+		}
+	}
+
+	/**
+	 * The counts of a number of searches at one time. Snapshots never change.
+	 */
+	public static final class Snapshot {
+		private final long searches;
+		private final Counts counts;
+		private final long depths;
+		private final long nanos;
+
+		private Snapshot(long searches, Counts counts, long depths, long nanos) {
+			this.searches = searches;
+			this.counts = counts;
+			this.depths = depths;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return The number of searches.
+		 */
+		public long getSearches() {
+			return this.searches;
+		}
+
+		/**
+		 * @return The number of positions visited, on all threads.
+		 */
+		public long getNodes() {
+			return this.counts.nodes;
+		}
+
+		/**
+		 * @return The number of positions scored by the evaluator or as finished
+		 *         games.
+		 */
+		public long getEvaluations() {
+			return this.counts.evaluations;
+		}
+
+		/**
+		 * @return The number of cutoffs, by the index of the move that caused them
+		 *         in the order tried; the last element counts all later moves.
+		 */
+		public long[] getBetaCutoffs() {
+			return this.counts.cutoffs.clone();
+		}
+
+		/**
+		 * @return The total number of cutoffs.
+		 */
+		public long getTotalBetaCutoffs() {
+			long total = 0;
+			for (long cutoffs : this.counts.cutoffs) {
+				total += cutoffs;
+			}
+			return total;
+		}
+
+		/**
+		 * @return The fraction of cutoffs caused by the first move tried, or 0 if
+		 *         there were none.
+		 */
+		public double getFirstMoveCutoffRate() {
+			long total = this.getTotalBetaCutoffs();
+			return total == 0 ? 0 : (double) this.counts.cutoffs[0] / total;
+		}
+
+		/**
+		 * @return The number of nodes cut by Multi-ProbCut.
+		 */
+		public long getProbCutCuts() {
+			return this.counts.probCutCuts;
+		}
+
+		/**
+		 * @return The number of transposition table probes.
+		 */
+		public long getHashProbes() {
+			return this.counts.hashProbes;
+		}
+
+		/**
+		 * @return The number of transposition table probes that found an entry.
+		 */
+		public long getHashHits() {
+			return this.counts.hashHits;
+		}
+
+		/**
+		 * @return The fraction of probes that found an entry, or 0 if there were
+		 *         none.
+		 */
+		public double getHashHitRate() {
+			return this.counts.hashProbes == 0 ? 0 : (double) this.counts.hashHits / this.counts.hashProbes;
+		}
+
+		/**
+		 * @return The mean depth of the deepest searches that finished, or 0 if
+		 *         there were no searches.
+		 */
+		public double getMeanDepth() {
+			return this.searches == 0 ? 0 : (double) this.depths / this.searches;
+		}
+
+		/**
+		 * @return The time spent searching, in nanoseconds.
+		 */
+		public long getElapsedNanos() {
+			return this.nanos;
+		}
+
+		/**
+		 * @return The number of positions visited per second of searching, or 0 if
+		 *         no time was spent.
+		 */
+		public double getNodesPerSecond() {
+			return this.nanos == 0 ? 0 : this.counts.nodes * 1e9 / this.nanos;
+		}
+
+		@Override
+		public String toString() {
+			String message = "%s(%d searches, %d nodes, %d evaluations, %.0f nodes/s, mean depth %.1f, "
+					+ "hash hit rate %.2f, cutoffs %s, ProbCut cuts %d)";
+			return String.format(message, this.getClass().getSimpleName(), this.searches, this.counts.nodes,
+					this.counts.evaluations, this.getNodesPerSecond(), this.getMeanDepth(), this.getHashHitRate(),
+					Arrays.toString(this.counts.cutoffs), this.counts.probCutCuts);
+		}
+	}
+
+}
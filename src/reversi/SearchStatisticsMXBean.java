@@ -0,0 +1,76 @@
+package reversi;
+
+/**
+ * The management interface of {@link SearchStatistics}, for watching a
+ * {@link SearchEngine} through JMX. Counts are cumulative since the statistics
+ * were created or last reset; the attributes named "last" describe the most
+ * recent search that was not pondering.
+ */
+public interface SearchStatisticsMXBean {
+  /**
+   * @return The number of searches.
+   */
+  public long getSearches();
+
+  /**
+   * @return The number of positions visited, on all threads.
+   */
+  public long getNodes();
+
+  /**
+   * @return The number of positions scored by the evaluator or as finished
+   *         games.
+   */
+  public long getEvaluations();
+
+  /**
+   * @return The number of cutoffs, by the index of the move that caused them
+   *         in the order tried; the last element counts all later moves.
+   */
+  public long[] getBetaCutoffs();
+
+  /**
+   * @return The fraction of cutoffs caused by the first move tried.
+   */
+  public double getFirstMoveCutoffRate();
+
+  /**
+   * @return The number of nodes cut by Multi-ProbCut.
+   */
+  public long getProbCutCuts();
+
+  /**
+   * @return The fraction of transposition table probes that found an entry.
+   */
+  public double getHashHitRate();
+
+  /**
+   * @return The mean depth of the deepest searches that finished.
+   */
+  public double getMeanDepth();
+
+  /**
+   * @return The number of positions visited per second of searching.
+   */
+  public double getNodesPerSecond();
+
+  /**
+   * @return The depth of the deepest search that finished in the last search.
+   */
+  public int getLastDepth();
+
+  /**
+   * @return The number of positions visited by the last search.
+   */
+  public long getLastNodes();
+
+  /**
+   * @return The number of positions the last search visited per second.
+   */
+  public double getLastNodesPerSecond();
+
+  /**
+   * Sets all counts back to zero.
+   */
+  public void reset();
+}
@@ -1,10 +1,11 @@
 package reversi;
 
-import java.util.Objects;
-
 /**
  * A square on a Reversi board, identified by a row and a column. Rows and
  * columns typically start counting at 0.
+ * <p>
+ * Prefer {@link #of(int, int)} to the constructor: it returns shared instances
+ * for the squares of an 8x8 board and for {@link #PASS}.
  */
 public class Square {
 
@@ -13,7 +14,19 @@ public class Square {
    */
   public static final Square PASS = new Square(-1, -1);
 
-  private int row, column;
+  /**
+   * The shared instances of the squares on an 8x8 board, by index.
+   */
+  private static final Square[] SQUARES = new Square[64];
+
+  static {
+    for (int index = 0; index < SQUARES.length; ++index) {
+      SQUARES[index] = new Square(index >>> 3, index & 7);
+    }
+  }
+
+  private final int row, column;
+  private final int hash;
 
   /**
    * Identifies a square on the Reversi board via the given row and column.
@@ -26,6 +39,37 @@ public class Square {
   public Square(int row, int column) {
     this.row = row;
     this.column = column;
+    this.hash = row * 8 + column;
+  }
+
+  /**
+   * Returns the square at the given row and column, reusing a shared instance
+   * whenever the square is on an 8x8 board or is {@link #PASS}.
+   * 
+   * @param row
+   *          The row on the Reversi board.
+   * @param column
+   *          The column on the Reversi board.
+   * @return The square at the given row and column.
+   */
+  public static Square of(int row, int column) {
+    if (0 <= row && row < 8 && 0 <= column && column < 8) {
+      return SQUARES[row * 8 + column];
+    }
+    if (row == PASS.row && column == PASS.column) {
+      return PASS;
+    }
+    return new Square(row, column);
+  }
+
+  /**
+   * @param index
+   *          The index of a square on an 8x8 board, as returned by
+   *          {@link #getIndex()}.
+   * @return The shared instance of the square with the given index.
+   */
+  public static Square fromIndex(int index) {
+    return SQUARES[index];
   }
 
   /**
@@ -42,13 +86,24 @@ public class Square {
     return this.column;
   }
 
+  /**
+   * @return The index {@code row * 8 + column} of this square on an 8x8 board, or
+   *         -1 if the square is not on such a board.
+   */
+  public int getIndex() {
+    return 0 <= this.row && this.row < 8 && 0 <= this.column && this.column < 8 ? this.hash : -1;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(this.row, this.column);
+    return this.hash;
   }
 
   @Override
   public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
     if (obj instanceof Square) {
       Square that = (Square) obj;
       return this.row == that.row && this.column == that.column;
@@ -0,0 +1,96 @@
+package reversi;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An unmodifiable mapping from occupied squares to their owners, backed by the
+ * disc masks of a board. Intended only for internal use.
+ */
+class SquareOwnerMap extends AbstractMap<Square, Player> {
+
+	private final long black;
+	private final long white;
+
+	/**
+	 * @param black
+	 *          The mask of squares occupied by {@link Player#BLACK}.
+	 * @param white
+	 *          The mask of squares occupied by {@link Player#WHITE}.
+	 */
+	SquareOwnerMap(long black, long white) {
+		this.black = black;
+		this.white = white;
+	}
+
+	@Override
+	public Player get(Object key) {
+		long bit = SquareSet.bitOf(key);
+		if ((this.black & bit) != 0L) {
+			return Player.BLACK;
+		}
+		if ((this.white & bit) != 0L) {
+			return Player.WHITE;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return ((this.black | this.white) & SquareSet.bitOf(key)) != 0L;
+	}
+
+	@Override
+	public int size() {
+		return Long.bitCount(this.black | this.white);
+	}
+
+	@Override
+	public Set<Square> keySet() {
+		return new SquareSet(this.black | this.white);
+	}
+
+	@Override
+	public Set<Map.Entry<Square, Player>> entrySet() {
+		return new AbstractSet<Map.Entry<Square, Player>>() {
+			@Override
+			public int size() {
+				return SquareOwnerMap.this.size();
+			}
+
+			@Override
+			public Iterator<Map.Entry<Square, Player>> iterator() {
+				return new Iterator<Map.Entry<Square, Player>>() {
+					private long remaining = SquareOwnerMap.this.black | SquareOwnerMap.this.white;
+
+					@Override
+					public boolean hasNext() {
+						return this.remaining != 0L;
+					}
+
+					@Override
+					public Map.Entry<Square, Player> next() {
+						if (this.remaining == 0L) {
+							throw new NoSuchElementException();
+						}
+						long bit = this.remaining & -this.remaining;
+						this.remaining ^= bit;
+						int index = Long.numberOfTrailingZeros(bit);
+						Player owner = (SquareOwnerMap.this.black & bit) != 0L ? Player.BLACK : Player.WHITE;
+						return new SimpleImmutableEntry<>(Square.fromIndex(index), owner);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+}
@@ -0,0 +1,79 @@
+package reversi;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unmodifiable set of squares backed by a 64-bit mask. Intended only for
+ * internal use.
+ */
+class SquareSet extends AbstractSet<Square> {
+
+	private final long squares;
+
+	/**
+	 * @param squares
+	 *          The mask of squares in the set, as laid out by {@link Bitboards}.
+	 */
+	SquareSet(long squares) {
+		this.squares = squares;
+	}
+
+	/**
+	 * Utility method for converting a square to its bit, or zero if it is not on
+	 * the board. Intended only for internal use.
+	 */
+	static long bitOf(Object obj) {
+		if (obj instanceof Square) {
+			int index = ((Square) obj).getIndex();
+			if (index >= 0) {
+				return 1L << index;
+			}
+		}
+		return 0L;
+	}
+
+	@Override
+	public boolean contains(Object obj) {
+		return (this.squares & bitOf(obj)) != 0L;
+	}
+
+	@Override
+	public int size() {
+		return Long.bitCount(this.squares);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.squares == 0L;
+	}
+
+	@Override
+	public Iterator<Square> iterator() {
+		return new Iterator<Square>() {
+			private long remaining = SquareSet.this.squares;
+
+			@Override
+			public boolean hasNext() {
+				return this.remaining != 0L;
+			}
+
+			@Override
+			public Square next() {
+				if (this.remaining == 0L) {
+					throw new NoSuchElementException();
+				}
+				int index = Long.numberOfTrailingZeros(this.remaining);
+				this.remaining &= this.remaining - 1;
+				return Square.fromIndex(index);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+}
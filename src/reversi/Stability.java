@@ -0,0 +1,186 @@
+package reversi;
+
+/**
+ * Finds stable discs: discs that no sequence of moves can ever flip. A disc can
+ * only be flipped along a line in which it lies between two other squares, so a
+ * disc is stable if, in each of the four directions through it, its line is
+ * full, or the line ends at the disc, or it is next to a stable disc of its own
+ * colour.
+ * <p>
+ * The discs on the edges of the board are looked up in a table of the stable
+ * discs of all 3<sup>8</sup> edges, computed once by trying every sequence of
+ * moves along the edge. Starting from those and from the discs whose four lines
+ * are all full, stability then spreads inwards until no more discs are found.
+ * The set found is therefore a subset of the truly stable discs, which is all
+ * that is needed for bounding a score.
+ */
+public final class Stability {
+
+	/**
+	 * The squares not on an edge of the board.
+	 */
+	private static final long INNER = 0x007e7e7e7e7e7e00L;
+
+	/**
+	 * For each set of up to 8 bits, the base 3 number with the same digits.
+	 */
+	private static final int[] TERNARY = new int[256];
+
+	/**
+	 * For each edge, numbered as by {@link #edgeIndex(int, int)}, the squares of
+	 * the first player that can never be flipped.
+	 */
+	private static final byte[] EDGE_STABLE = new byte[6561];
+
+	/**
+	 * The diagonals and anti-diagonals of the board. Full rows and columns are
+	 * found by shifting instead.
+	 */
+	private static final long[] DIAGONALS = new long[15];
+	private static final long[] ANTI_DIAGONALS = new long[15];
+
+	static {
+		for (int bits = 1; bits < TERNARY.length; ++bits) {
+			int low = Integer.numberOfTrailingZeros(bits);
+			int power = 1;
+			for (int i = 0; i < low; ++i) {
+				power *= 3;
+			}
+			TERNARY[bits] = TERNARY[bits & bits - 1] + power;
+		}
+
+		// The stability of an edge depends on the edges with more discs, so fill the
+		// table from the full edges down
+		for (int filled = 8; filled >= 0; --filled) {
+			for (int player = 0; player < 256; ++player) {
+				for (int opponent = 0; opponent < 256; ++opponent) {
+					if ((player & opponent) == 0 && Integer.bitCount(player | opponent) == filled) {
+						EDGE_STABLE[edgeIndex(player, opponent)] = (byte) edgeStable(player, opponent);
+					}
+				}
+			}
+		}
+
+		for (int row = 0; row < 8; ++row) {
+			for (int column = 0; column < 8; ++column) {
+				long bit = Bitboards.bit(row, column);
+				DIAGONALS[row - column + 7] |= bit;
+				ANTI_DIAGONALS[row + column] |= bit;
+			}
+		}
+	}
+
+	private Stability() {
+	}
+
+	/**
+	 * @param player
+	 *          The discs of the player whose stable discs are wanted.
+	 * @param opponent
+	 *          The discs of the other player.
+	 * @return Discs of the player that can never be flipped. Not every such disc
+	 *         is necessarily found.
+	 */
+	public static long getStableDiscs(long player, long opponent) {
+		// The edges, the columns read as rows of the transposed board
+		long transposedPlayer = Bitboards.transpose(player);
+		long transposedOpponent = Bitboards.transpose(opponent);
+		long stable = edgeStable(player, opponent) | Bitboards.transpose(edgeStable(transposedPlayer, transposedOpponent));
+
+		long filled = player | opponent;
+		long fullRows = filled & filled >>> 1;
+		fullRows &= fullRows >>> 2;
+		fullRows &= fullRows >>> 4;
+		fullRows = (fullRows & 0x0101010101010101L) * 0xff;
+		long fullColumns = filled & Long.rotateRight(filled, 8);
+		fullColumns &= Long.rotateRight(fullColumns, 16);
+		fullColumns &= Long.rotateRight(fullColumns, 32);
+		long fullDiagonals = fullLines(filled, DIAGONALS);
+		long fullAntiDiagonals = fullLines(filled, ANTI_DIAGONALS);
+		long inner = player & INNER;
+		stable |= inner & fullRows & fullColumns & fullDiagonals & fullAntiDiagonals;
+
+		// A disc away from the edges is stable if in each direction it is on a full
+		// line or next to a stable disc of its own
+		long old;
+		do {
+			old = stable;
+			long rows = stable >>> 1 | stable << 1 | fullRows;
+			long columns = stable >>> 8 | stable << 8 | fullColumns;
+			long diagonals = stable >>> 9 | stable << 9 | fullDiagonals;
+			long antiDiagonals = stable >>> 7 | stable << 7 | fullAntiDiagonals;
+			stable |= inner & rows & columns & diagonals & antiDiagonals;
+		} while (stable != old);
+		return stable;
+	}
+
+	/**
+	 * @return The stable discs of the player on the top and bottom edges.
+	 */
+	private static long edgeStable(long player, long opponent) {
+		long top = EDGE_STABLE[edgeIndex((int) player & 0xff, (int) opponent & 0xff)] & 0xffL;
+		long bottom = EDGE_STABLE[edgeIndex((int) (player >>> 56), (int) (opponent >>> 56))] & 0xffL;
+		return top | bottom << 56;
+	}
+
+	/**
+	 * @return The union of the lines that have no empty squares.
+	 */
+	private static long fullLines(long filled, long[] lines) {
+		long full = 0L;
+		for (long line : lines) {
+			if ((filled & line) == line) {
+				full |= line;
+			}
+		}
+		return full;
+	}
+
+	/**
+	 * Utility method for numbering an edge in base 3, a square of the first player
+	 * counting 1 and of the second player 2. Intended only for internal use.
+	 */
+	private static int edgeIndex(int player, int opponent) {
+		return TERNARY[player] + 2 * TERNARY[opponent];
+	}
+
+	/**
+	 * Utility method for finding the stable discs of an edge from those of the
+	 * edges with one more disc: a disc is stable if it stays the player's and
+	 * stable whichever player plays on whichever empty square. Intended only for
+	 * internal use.
+	 */
+	private static int edgeStable(int player, int opponent) {
+		int stable = player;
+		for (int empty = ~(player | opponent) & 0xff; empty != 0 && stable != 0; empty &= empty - 1) {
+			int square = Integer.numberOfTrailingZeros(empty);
+			int bit = 1 << square;
+			int flips = edgeFlips(player, opponent, square);
+			stable &= EDGE_STABLE[edgeIndex(player | flips | bit, opponent & ~flips)];
+			flips = edgeFlips(opponent, player, square);
+			stable &= EDGE_STABLE[edgeIndex(player & ~flips, opponent | flips | bit)];
+		}
+		return stable;
+	}
+
+	/**
+	 * Utility method for finding the discs captured along an edge by playing on
+	 * one of its empty squares. Intended only for internal use.
+	 */
+	private static int edgeFlips(int mover, int other, int square) {
+		int flips = 0;
+		for (int step = -1; step <= 1; step += 2) {
+			int run = 0;
+			int i = square + step;
+			while (i >= 0 && i < 8 && (other & 1 << i) != 0) {
+				run |= 1 << i;
+				i += step;
+			}
+			if (i >= 0 && i < 8 && (mover & 1 << i) != 0) {
+				flips |= run;
+			}
+		}
+		return flips;
+	}
+
+}
@@ -0,0 +1,67 @@
+package reversi;
+
+/**
+ * Adds to the score of another evaluator a bonus for each stable disc, that is
+ * each disc {@link Stability} finds can never be flipped, a player owns beyond
+ * their opponent's count. Stable discs are worth having at any stage of the
+ * game, since they are certain to count at the end.
+ * <p>
+ * The features of the other evaluator, if it has any, are passed on, so a
+ * {@link SearchBoard} can keep them for it as before.
+ */
+public class StabilityEvaluator implements IncrementalEvaluator {
+
+	/**
+	 * The worth of a stable disc unless another is given: twice the best edge
+	 * square of the default {@link PositionalEvaluator}, and less than half a
+	 * corner (100), which, being stable, earns this bonus on top.
+	 */
+	private static final int DEFAULT_WEIGHT = 40;
+
+	private final Evaluator evaluator;
+
+	private final int weight;
+
+	/**
+	 * Creates an evaluator with the default worth of a stable disc.
+	 *
+	 * @param evaluator
+	 *          The evaluator to add the bonus to.
+	 */
+	public StabilityEvaluator(Evaluator evaluator) {
+		this(evaluator, DEFAULT_WEIGHT);
+	}
+
+	/**
+	 * Creates an evaluator.
+	 *
+	 * @param evaluator
+	 *          The evaluator to add the bonus to.
+	 * @param weight
+	 *          What each stable disc adds to the score.
+	 */
+	public StabilityEvaluator(Evaluator evaluator, int weight) {
+		if (evaluator == null) {
+			throw new NullPointerException("The evaluator must not be null.");
+		}
+		this.evaluator = evaluator;
+		this.weight = weight;
+	}
+
+	@Override
+	public int[][] getFeatures() {
+		return this.evaluator instanceof IncrementalEvaluator
+				? ((IncrementalEvaluator) this.evaluator).getFeatures()
+				: new int[0][];
+	}
+
+	@Override
+	public int evaluate(SearchBoard board) {
+		long mine = board.getPlayerDiscs();
+		long theirs = board.getOpponentDiscs();
+		int stable = Long.bitCount(Stability.getStableDiscs(mine, theirs));
+		int opponentStable = Long.bitCount(Stability.getStableDiscs(theirs, mine));
+		return this.evaluator.evaluate(board) + this.weight * (stable - opponentStable);
+	}
+
+}
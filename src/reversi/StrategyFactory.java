@@ -0,0 +1,15 @@
+package reversi;
+
+/**
+ * Creates strategies, so that a {@link Tournament} can give every game
+ * strategies of its own. Strategies keep state between moves, such as a
+ * transposition table or a pondering search, and are not safe to use in two
+ * games at once. Strategies that own threads should be {@link AutoCloseable},
+ * so that the tournament can release them when their game ends.
+ */
+public interface StrategyFactory {
+  /**
+   * @return A new strategy, sharing nothing with the strategies created before.
+   */
+  public Strategy newStrategy();
+}
@@ -10,10 +10,16 @@ public class StrategyTimedOutException extends Exception {
 
 	private Strategy opponentStrategy;
 	private Strategy timedOutStrategy;
+	private Board board;
 
 	public StrategyTimedOutException(Strategy timedOutStrategy, Strategy opponentStrategy) {
+		this(timedOutStrategy, opponentStrategy, null);
+	}
+
+	public StrategyTimedOutException(Strategy timedOutStrategy, Strategy opponentStrategy, Board board) {
 		this.timedOutStrategy = timedOutStrategy;
 		this.opponentStrategy = opponentStrategy;
+		this.board = board;
 	}
 
 	/**
@@ -31,5 +37,13 @@ public class StrategyTimedOutException extends Exception {
 		return this.opponentStrategy;
 	}
 
+	/**
+	 * @return The board on which the strategy exceeded the allotted time, or null
+	 *         if it is not known.
+	 */
+	public Board getBoard() {
+		return this.board;
+	}
+
 
 }
@@ -0,0 +1,104 @@
+package reversi;
+
+/**
+ * One of the 8 symmetries of the square Reversi board: the rotations and the
+ * reflections. Rows count downwards and rotations are clockwise, so
+ * {@link #ROTATE_90} moves the top row to the rightmost column.
+ */
+public enum Symmetry {
+  /**
+   * Leaves every square where it is.
+   */
+  IDENTITY,
+  /**
+   * Rotates the board a quarter turn clockwise: (row, column) moves to (column,
+   * 7 - row).
+   */
+  ROTATE_90,
+  /**
+   * Rotates the board a half turn: (row, column) moves to (7 - row, 7 - column).
+   */
+  ROTATE_180,
+  /**
+   * Rotates the board a quarter turn anticlockwise: (row, column) moves to (7 -
+   * column, row).
+   */
+  ROTATE_270,
+  /**
+   * Reverses the order of the rows: (row, column) moves to (7 - row, column).
+   */
+  FLIP_ROWS,
+  /**
+   * Reverses the order of the columns: (row, column) moves to (row, 7 - column).
+   */
+  FLIP_COLUMNS,
+  /**
+   * Reflects the board in the diagonal through (0,0): (row, column) moves to
+   * (column, row).
+   */
+  FLIP_DIAGONAL,
+  /**
+   * Reflects the board in the diagonal through (0,7): (row, column) moves to (7 -
+   * column, 7 - row).
+   */
+  FLIP_ANTI_DIAGONAL;
+
+  /**
+   * @return The symmetry that undoes this one.
+   */
+  public Symmetry inverse() {
+    switch (this) {
+      case ROTATE_90:
+        return ROTATE_270;
+      case ROTATE_270:
+        return ROTATE_90;
+      default:
+        return this;
+    }
+  }
+
+  /**
+   * @param squares
+   *          A set of squares, as a mask where square (row, column) is bit
+   *          {@code row * 8 + column}.
+   * @return The mask of the squares moved by this symmetry.
+   */
+  public long apply(long squares) {
+    switch (this) {
+      case IDENTITY:
+        return squares;
+      case ROTATE_90:
+        return Bitboards.flipColumns(Bitboards.transpose(squares));
+      case ROTATE_180:
+        return Long.reverse(squares);
+      case ROTATE_270:
+        return Bitboards.flipRows(Bitboards.transpose(squares));
+      case FLIP_ROWS:
+        return Bitboards.flipRows(squares);
+      case FLIP_COLUMNS:
+        return Bitboards.flipColumns(squares);
+      case FLIP_DIAGONAL:
+        return Bitboards.transpose(squares);
+      case FLIP_ANTI_DIAGONAL:
+        return Long.reverse(Bitboards.transpose(squares));
+    }
+    throw new IllegalStateException("unexpected Symmetry: " + this);
+  }
+
+  /**
+   * @param square
+   *          A square on an 8x8 board, or {@link Square#PASS}.
+   * @return The square this symmetry moves the given square to. A pass is left
+   *         as a pass.
+   */
+  public Square apply(Square square) {
+    int index = square.getIndex();
+    if (index < 0) {
+      if (square.equals(Square.PASS)) {
+        return Square.PASS;
+      }
+      throw new IllegalArgumentException(square + " is not on the board");
+    }
+    return Square.fromIndex(Long.numberOfTrailingZeros(this.apply(1L << index)));
+  }
+}
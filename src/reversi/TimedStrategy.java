@@ -0,0 +1,21 @@
+package reversi;
+
+/**
+ * A strategy that can make use of the time it is allowed for choosing a square,
+ * for example by searching deeper when time allows. {@link Reversi} tells such
+ * strategies the deadline for each square they choose.
+ */
+public interface TimedStrategy extends Strategy {
+  /**
+   * Determines where the current player should play their next piece, returning
+   * before the given deadline.
+   * 
+   * @param board
+   *          The current state of the Reversi board.
+   * @param deadline
+   *          The value of {@link System#nanoTime()} by which the square must be
+   *          returned.
+   * @return The square where the current player should play their next piece.
+   */
+  public Square chooseSquare(Board board, long deadline);
+}
@@ -0,0 +1,410 @@
+package reversi;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A round-robin tournament between strategies, with games played at the same
+ * time on a pool of threads. Each round, every strategy plays every other once
+ * as black and once as white. Every game gets new strategies from the
+ * entrants' {@link StrategyFactory factories}, so no strategy is used by two
+ * games at once, and strategies that are {@link AutoCloseable} are closed when
+ * their game ends, so that threads they own do not pile up.
+ * <p>
+ * Whenever a thread is free, it starts the game expected to take longest, by
+ * the mean time each strategy has spent thinking in its games so far.
+ * Strategies that have not finished a game yet are expected to take longest of
+ * all, so that every strategy is timed early. Starting long games first keeps
+ * one slow game from being left to run alone at the end.
+ * <p>
+ * Games are counted in per-strategy {@link LongAdder}s, so that the threads do
+ * not wait for each other when a game ends. Strategies that search on several
+ * threads, or ponder, take cores from the other games and may run out of time,
+ * so pondering is off unless allowed.
+ */
+public class Tournament {
+
+	private final long timeout;
+	private final TimeUnit timeoutUnit;
+	private final List<Standing> entrants = Lists.newArrayList();
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean ponderingAllowed;
+	private GameArchiveWriter archive;
+
+	// The games not started yet
+	private final List<Game> pending = Lists.newArrayList();
+
+	/**
+	 * Creates a tournament with no strategies.
+	 *
+	 * @param timeout
+	 *          The maximum time allowed to a strategy for choosing a square.
+	 * @param timeoutUnit
+	 *          The unit of the timeout.
+	 */
+	public Tournament(long timeout, TimeUnit timeoutUnit) {
+		this.timeout = timeout;
+		this.timeoutUnit = timeoutUnit;
+	}
+
+	/**
+	 * Enters a strategy in the tournament.
+	 *
+	 * @param name
+	 *          The name the strategy is ranked and archived under, different
+	 *          from the names of the other strategies.
+	 * @param factory
+	 *          Creates the strategy for each game.
+	 */
+	public synchronized void add(String name, StrategyFactory factory) {
+		for (Standing entrant : this.entrants) {
+			if (entrant.name.equals(name)) {
+				throw new IllegalArgumentException("A strategy named " + name + " has already been entered.");
+			}
+		}
+		this.entrants.add(new Standing(name, factory));
+	}
+
+	/**
+	 * Sets how many games are played at once. As many as there are processors
+	 * unless set otherwise.
+	 *
+	 * @param threads
+	 *          The number of threads to play games on.
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be greater than 0.");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets whether a {@link PonderingStrategy} may think on its opponent's time.
+	 * Not allowed unless set otherwise.
+	 *
+	 * @param ponderingAllowed
+	 *          True to let strategies ponder.
+	 */
+	public void setPonderingAllowed(boolean ponderingAllowed) {
+		this.ponderingAllowed = ponderingAllowed;
+	}
+
+	/**
+	 * Sets where every game played is appended. The archive is not closed by
+	 * the tournament.
+	 *
+	 * @param archive
+	 *          The archive, or null not to keep the games.
+	 */
+	public void setArchive(GameArchiveWriter archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * Plays the tournament, and waits until every game is finished.
+	 *
+	 * @param rounds
+	 *          The number of rounds to play.
+	 * @return The standings of the strategies in this tournament, the most wins
+	 *         first, then the most draws.
+	 * @throws IOException
+	 *           If a game could not be archived, in which case no more games are
+	 *           started.
+	 */
+	public List<Standing> play(int rounds) throws IOException {
+		List<Standing> entrants;
+		synchronized (this) {
+			entrants = Lists.newArrayList(this.entrants);
+			this.pending.clear();
+			for (int round = 0; round < rounds; ++round) {
+				for (int i = 0; i < entrants.size(); ++i) {
+					for (int j = i + 1; j < entrants.size(); ++j) {
+						this.pending.add(new Game(entrants.get(i), entrants.get(j)));
+						this.pending.add(new Game(entrants.get(j), entrants.get(i)));
+					}
+				}
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads,
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Tournament-%d").build());
+		try {
+			List<Future<Void>> workers = Lists.newArrayList();
+			for (int i = 0; i < this.threads; ++i) {
+				workers.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						Game game;
+						while ((game = Tournament.this.nextGame()) != null) {
+							Tournament.this.playGame(game.black, game.white);
+						}
+						return null;
+					}
+				}));
+			}
+			Throwable failure = null;
+			for (Future<Void> worker : workers) {
+				try {
+					worker.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("interrupted while playing the tournament", e);
+				} catch (ExecutionException e) {
+					// Start no more games, and let the running ones finish
+					synchronized (this) {
+						this.pending.clear();
+					}
+					if (failure == null) {
+						failure = e.getCause();
+					}
+				}
+			}
+			if (failure instanceof IOException) {
+				throw (IOException) failure;
+			} else if (failure != null) {
+				throw new IllegalStateException("playing the tournament failed", failure);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Collections.sort(entrants, new Comparator<Standing>() {
+			@Override
+			public int compare(Standing a, Standing b) {
+				int byWins = Long.compare(b.getWins(), a.getWins());
+				return byWins != 0 ? byWins : Long.compare(b.getDraws(), a.getDraws());
+			}
+		});
+		return entrants;
+	}
+
+	/**
+	 * Utility method for taking the game expected to take longest off the games
+	 * not started yet. Intended only for internal use.
+	 *
+	 * @return The game, or null if all games have been started.
+	 */
+	private synchronized Game nextGame() {
+		if (this.pending.isEmpty()) {
+			return null;
+		}
+		int longest = 0;
+		long longestNanos = Long.MIN_VALUE;
+		for (int i = 0; i < this.pending.size(); ++i) {
+			Game game = this.pending.get(i);
+			long nanos = game.black.getExpectedNanos() + game.white.getExpectedNanos();
+			if (nanos > longestNanos) {
+				longest = i;
+				longestNanos = nanos;
+			}
+		}
+		// Move the last game into the gap, since the order of the rest does not
+		// matter
+		Game game = this.pending.get(longest);
+		this.pending.set(longest, this.pending.get(this.pending.size() - 1));
+		this.pending.remove(this.pending.size() - 1);
+		return game;
+	}
+
+	/**
+	 * Utility method for playing one game with new strategies, and closing them
+	 * afterwards, whatever happens. Intended only for internal use.
+	 */
+	private void playGame(Standing black, Standing white) throws IOException {
+		Strategy blackStrategy = black.factory.newStrategy();
+		try {
+			Strategy whiteStrategy = white.factory.newStrategy();
+			try {
+				this.playGame(black, blackStrategy, white, whiteStrategy);
+			} finally {
+				close(whiteStrategy);
+			}
+		} finally {
+			close(blackStrategy);
+		}
+	}
+
+	/**
+	 * Utility method for playing one game, archiving it and counting its result.
+	 * Intended only for internal use.
+	 */
+	private void playGame(Standing black, Strategy blackStrategy, Standing white, Strategy whiteStrategy)
+			throws IOException {
+		Reversi reversi = new Reversi(blackStrategy, whiteStrategy, this.timeout, this.timeoutUnit);
+		reversi.setPonderingAllowed(this.ponderingAllowed);
+		Board last;
+		Player winner;
+		Player timedOut = null;
+		try {
+			last = reversi.play(new Board());
+			winner = last.getWinner();
+		} catch (StrategyTimedOutException e) {
+			// If one of the strategies timed out, the opponent is considered the winner
+			last = e.getBoard();
+			timedOut = last.getCurrentPlayer();
+			winner = timedOut.opponent();
+		}
+
+		GameArchiveWriter archive = this.archive;
+		if (archive != null) {
+			archive.append(new GameRecord(black.name, white.name, last, timedOut,
+					reversi.getThinkingTime(Player.BLACK, TimeUnit.MILLISECONDS),
+					reversi.getThinkingTime(Player.WHITE, TimeUnit.MILLISECONDS)));
+		}
+		black.count(winner == null ? 0 : winner == Player.BLACK ? 1 : -1, timedOut == Player.BLACK,
+				reversi.getThinkingTime(Player.BLACK, TimeUnit.NANOSECONDS));
+		white.count(winner == null ? 0 : winner == Player.WHITE ? 1 : -1, timedOut == Player.WHITE,
+				reversi.getThinkingTime(Player.WHITE, TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * Utility method for releasing what a strategy holds, if it can be closed.
+	 * Intended only for internal use.
+	 */
+	private static void close(Strategy strategy) {
+		if (!(strategy instanceof AutoCloseable)) {
+			return;
+		}
+		try {
+			((AutoCloseable) strategy).close();
+		} catch (Exception e) {
+			throw new IllegalStateException("closing " + strategy.getClass().getName() + " failed", e);
+		}
+	}
+
+	/**
+	 * A game to be played, by the entrants playing black and white.
+	 */
+	private static class Game {
+		private final Standing black;
+		private final Standing white;
+
+		private Game(Standing black, Standing white) {
+			this.black = black;
+			this.white = white;
+		}
+	}
+
+	/**
+	 * The results of one strategy in a tournament so far.
+	 */
+	public static class Standing {
+		private final String name;
+		private final StrategyFactory factory;
+		private final LongAdder wins = new LongAdder();
+		private final LongAdder draws = new LongAdder();
+		private final LongAdder losses = new LongAdder();
+		private final LongAdder timeouts = new LongAdder();
+		private final LongAdder thinkingNanos = new LongAdder();
+
+		private Standing(String name, StrategyFactory factory) {
+			this.name = name;
+			this.factory = factory;
+		}
+
+		/**
+		 * @return The name the strategy was entered under.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * @return The number of games played.
+		 */
+		public long getGames() {
+			return this.getWins() + this.getDraws() + this.getLosses();
+		}
+
+		/**
+		 * @return The number of games won, including those won because the
+		 *         opponent ran out of time.
+		 */
+		public long getWins() {
+			return this.wins.sum();
+		}
+
+		/**
+		 * @return The number of games drawn.
+		 */
+		public long getDraws() {
+			return this.draws.sum();
+		}
+
+		/**
+		 * @return The number of games lost.
+		 */
+		public long getLosses() {
+			return this.losses.sum();
+		}
+
+		/**
+		 * @return The number of games lost by running out of time.
+		 */
+		public long getTimeouts() {
+			return this.timeouts.sum();
+		}
+
+		/**
+		 * @param unit
+		 *          The unit of the returned time.
+		 * @return The total time the strategy spent choosing squares.
+		 */
+		public long getThinkingTime(TimeUnit unit) {
+			return unit.convert(this.thinkingNanos.sum(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public String toString() {
+			String message = "%s(%s: %d wins, %d draws, %d losses, %d timeouts)";
+			return String.format(message, this.getClass().getSimpleName(), this.name, this.getWins(), this.getDraws(),
+					this.getLosses(), this.getTimeouts());
+		}
+
+		/**
+		 * Utility method for estimating how long the strategy thinks in a game.
+		 * Intended only for internal use.
+		 *
+		 * @return The mean thinking time of its games so far, in nanoseconds, or a
+		 *         time longer than any game's if it has not finished one.
+		 */
+		private long getExpectedNanos() {
+			long games = this.getGames();
+			return games == 0 ? Long.MAX_VALUE / 4 : this.thinkingNanos.sum() / games;
+		}
+
+		/**
+		 * Utility method for counting a game. Intended only for internal use.
+		 *
+		 * @param result
+		 *          1 for a win, 0 for a draw and -1 for a loss.
+		 */
+		private void count(int result, boolean timedOut, long thinkingNanos) {
+			this.thinkingNanos.add(thinkingNanos);
+			if (timedOut) {
+				this.timeouts.increment();
+			}
+			if (result > 0) {
+				this.wins.increment();
+			} else if (result < 0) {
+				this.losses.increment();
+			} else {
+				this.draws.increment();
+			}
+		}
+	}
+
+}
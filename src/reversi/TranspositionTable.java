@@ -0,0 +1,187 @@
+package reversi;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, keyed by the Zobrist key of a
+ * position (see {@link Board#getZobristKey()}). Each entry records the depth
+ * that was searched, the score found, whether that score is exact or only a
+ * bound, and the best move.
+ * <p>
+ * All entries live in one preallocated {@code long[]}, two slots per bucket:
+ * the first slot keeps the deepest result seen for its positions, the second
+ * always takes the most recent one. Each slot is a pair of longs, the packed
+ * entry and the entry XOR-ed with its key. A reader only accepts a slot whose
+ * two longs agree with the key it is probing for, so threads may probe and
+ * store concurrently without locks: a slot torn by a concurrent write simply
+ * reads as a miss.
+ * <p>
+ * Probing returns the packed entry as a {@code long}, with zero meaning a miss.
+ * Use {@link #getScore(long)}, {@link #getDepth(long)}, {@link #getBound(long)}
+ * and {@link #getMove(long)} to unpack it.
+ */
+public class TranspositionTable {
+
+	/**
+	 * The stored score is a lower bound: the search failed high.
+	 */
+	public static final int LOWER_BOUND = 1;
+
+	/**
+	 * The stored score is an upper bound: the search failed low.
+	 */
+	public static final int UPPER_BOUND = 2;
+
+	/**
+	 * The stored score is exact.
+	 */
+	public static final int EXACT = 3;
+
+	/**
+	 * Stored as the move of entries that have no best move.
+	 */
+	public static final int NO_MOVE = -1;
+
+	private static final int BYTES_PER_BUCKET = 4 * 8;
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int MOVE_SHIFT = 42;
+	private static final int GENERATION_SHIFT = 49;
+
+	private final long[] table;
+	private final int bucketMask;
+	private volatile int generation;
+
+	/**
+	 * Creates an empty table.
+	 *
+	 * @param megabytes
+	 *          The memory budget of the table. The table uses the largest power of
+	 *          two number of buckets that fits in the budget.
+	 */
+	public TranspositionTable(int megabytes) {
+		if (megabytes < 1) {
+			throw new IllegalArgumentException("The table must be given at least one megabyte.");
+		}
+		long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BYTES_PER_BUCKET);
+		buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / 4));
+		this.table = new long[(int) buckets * 4];
+		this.bucketMask = (int) buckets - 1;
+	}
+
+	/**
+	 * Marks the start of a new search. Results from earlier searches remain
+	 * available, but are the first to be replaced.
+	 */
+	public void newSearch() {
+		this.generation = (this.generation + 1) & 0xff;
+	}
+
+	/**
+	 * Removes all entries from the table. Not safe to call while other threads use
+	 * the table.
+	 */
+	public void clear() {
+		Arrays.fill(this.table, 0L);
+	}
+
+	/**
+	 * Looks up the result stored for a position.
+	 *
+	 * @param key
+	 *          The Zobrist key of the position.
+	 * @return The packed entry, or zero if no result is stored for the position.
+	 */
+	public long probe(long key) {
+		int slot = this.bucketOf(key);
+		for (int i = 0; i < 2; ++i, slot += 2) {
+			long data = this.table[slot + 1];
+			if ((this.table[slot] ^ data) == key && data != 0L) {
+				return data;
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Stores the result of searching a position.
+	 *
+	 * @param key
+	 *          The Zobrist key of the position.
+	 * @param depth
+	 *          The number of plies searched below the position, from 0 to 255.
+	 * @param bound
+	 *          One of {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}.
+	 * @param score
+	 *          The score found by the search.
+	 * @param move
+	 *          The index of the best square found, or {@link #NO_MOVE}.
+	 */
+	public void store(long key, int depth, int bound, int score, int move) {
+		int generation = this.generation;
+		long data = (score & 0xffffffffL)
+				| (long) Math.min(depth, 0xff) << DEPTH_SHIFT
+				| (long) bound << BOUND_SHIFT
+				| (long) (move + 1) << MOVE_SHIFT
+				| (long) generation << GENERATION_SHIFT;
+		int slot = this.bucketOf(key);
+		long deepest = this.table[slot + 1];
+		boolean sameKey = (this.table[slot] ^ deepest) == key;
+		if (sameKey || deepest == 0L || depth >= getDepth(deepest)
+				|| (int) (deepest >>> GENERATION_SHIFT & 0xff) != generation) {
+			if (sameKey && move == NO_MOVE) {
+				// Keep the best move from the earlier search of this position
+				data |= deepest & (0x7fL << MOVE_SHIFT);
+			}
+		} else {
+			slot += 2;
+		}
+		this.table[slot + 1] = data;
+		this.table[slot] = key ^ data;
+	}
+
+	/**
+	 * Utility method for finding the first slot of the bucket for a key. Intended
+	 * only for internal use.
+	 */
+	private int bucketOf(long key) {
+		return ((int) (key ^ (key >>> 32)) & this.bucketMask) << 2;
+	}
+
+	/**
+	 * @param entry
+	 *          A packed entry returned by {@link #probe(long)}.
+	 * @return The stored score.
+	 */
+	public static int getScore(long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * @param entry
+	 *          A packed entry returned by {@link #probe(long)}.
+	 * @return The number of plies that were searched below the position.
+	 */
+	public static int getDepth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT) & 0xff;
+	}
+
+	/**
+	 * @param entry
+	 *          A packed entry returned by {@link #probe(long)}.
+	 * @return One of {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}.
+	 */
+	public static int getBound(long entry) {
+		return (int) (entry >>> BOUND_SHIFT) & 0x3;
+	}
+
+	/**
+	 * @param entry
+	 *          A packed entry returned by {@link #probe(long)}.
+	 * @return The index of the best square found, or {@link #NO_MOVE}.
+	 */
+	public static int getMove(long entry) {
+		return ((int) (entry >>> MOVE_SHIFT) & 0x7f) - 1;
+	}
+
+}
@@ -0,0 +1,79 @@
+package reversi;
+
+/**
+ * Random keys for Zobrist hashing of Reversi positions. The key of a position is
+ * the exclusive or of the keys of every occupied square for its owner, plus
+ * {@link #WHITE_TO_MOVE} when {@link Player#WHITE} is the next player. Intended
+ * only for internal use.
+ */
+final class Zobrist {
+
+	/**
+	 * The key of each square when occupied by {@link Player#BLACK}.
+	 */
+	static final long[] BLACK = new long[64];
+
+	/**
+	 * The key of each square when occupied by {@link Player#WHITE}.
+	 */
+	static final long[] WHITE = new long[64];
+
+	/**
+	 * The change in key when the owner of each square is flipped, that is the
+	 * exclusive or of its {@link #BLACK} and {@link #WHITE} keys.
+	 */
+	static final long[] FLIP = new long[64];
+
+	/**
+	 * The key for {@link Player#WHITE} being the next player.
+	 */
+	static final long WHITE_TO_MOVE;
+
+	static {
+		// SplitMix64 with a fixed seed, so keys are the same on every run
+		long seed = 0x5eed5eed5eed5eedL;
+		for (int index = 0; index < 64; ++index) {
+			BLACK[index] = mix(seed += 0x9e3779b97f4a7c15L);
+			WHITE[index] = mix(seed += 0x9e3779b97f4a7c15L);
+			FLIP[index] = BLACK[index] ^ WHITE[index];
+		}
+		WHITE_TO_MOVE = mix(seed += 0x9e3779b97f4a7c15L);
+	}
+
+	private Zobrist() {
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return The key of the position with the given discs and next player.
+	 */
+	static long key(long black, long white, Player player) {
+		long key = player == Player.WHITE ? WHITE_TO_MOVE : 0L;
+		for (; black != 0L; black &= black - 1) {
+			key ^= BLACK[Long.numberOfTrailingZeros(black)];
+		}
+		for (; white != 0L; white &= white - 1) {
+			key ^= WHITE[Long.numberOfTrailingZeros(white)];
+		}
+		return key;
+	}
+
+	/**
+	 * @return The change in key when the given player places a disc at the given
+	 *         square and flips the captured discs, including the change of next
+	 *         player.
+	 */
+	static long move(Player player, int index, long captures) {
+		long key = WHITE_TO_MOVE ^ (player == Player.BLACK ? BLACK[index] : WHITE[index]);
+		for (; captures != 0L; captures &= captures - 1) {
+			key ^= FLIP[Long.numberOfTrailingZeros(captures)];
+		}
+		return key;
+	}
+
+}
@@ -0,0 +1,113 @@
+package strategy;
+import reversi.Board;
+import reversi.OpeningBook;
+import reversi.PonderingStrategy;
+import reversi.Square;
+import reversi.Strategy;
+import reversi.TimedStrategy;
+
+/**
+ * Plays the move of an {@link OpeningBook} while the book covers the board,
+ * and asks another strategy once it does not. Book moves take no search, so
+ * the whole time budget of the opening moves is saved.
+ * <p>
+ * The other strategy belongs to this one: it is told to ponder when this one
+ * is, if it can, and closed when this one is closed. The book does not; it is
+ * never closed here, so that one book can serve many strategies, and whoever
+ * opened it closes it once they are all done.
+ */
+public class BookStrategy implements TimedStrategy, PonderingStrategy, AutoCloseable {
+
+	private final OpeningBook book;
+	private final Strategy strategy;
+	private final int minGames;
+
+	/**
+	 * Creates the strategy, trusting any book move played in at least one game.
+	 * @param book           the moves to play in the opening
+	 * @param strategy       chooses the moves the book does not cover
+	 */
+	public BookStrategy(OpeningBook book, Strategy strategy) {
+		this(book, strategy, 1);
+	}
+
+	/**
+	 * Creates the strategy.
+	 * @param book           the moves to play in the opening
+	 * @param strategy       chooses the moves the book does not cover
+	 * @param minGames       the fewest games a book move must have been played in
+	 */
+	public BookStrategy(OpeningBook book, Strategy strategy, int minGames) {
+		this.book = book;
+		this.strategy = strategy;
+		this.minGames = minGames;
+	}
+
+	@Override
+	public Square chooseSquare(Board board) {
+		Square square = bookSquare(board);
+		return square != null ? square : strategy.chooseSquare(board);
+	}
+
+	/**
+	 * Play the book move if there is one, otherwise give the other strategy the
+	 * deadline if it can use one.
+	 * @param board         the Reversi board to play on
+	 * @param deadline      the System.nanoTime() by which we must choose
+	 */
+	@Override
+	public Square chooseSquare(Board board, long deadline) {
+		Square square = bookSquare(board);
+		if (square != null) {
+			return square;
+		}
+		return strategy instanceof TimedStrategy
+				? ((TimedStrategy) strategy).chooseSquare(board, deadline)
+				: strategy.chooseSquare(board);
+	}
+
+	/**
+	 * Let the other strategy think on the opponent's time, if it can.
+	 * @param board         the board with the opponent to move
+	 */
+	@Override
+	public void startPondering(Board board) {
+		if (strategy instanceof PonderingStrategy) {
+			((PonderingStrategy) strategy).startPondering(board);
+		}
+	}
+
+	@Override
+	public void stopPondering() {
+		if (strategy instanceof PonderingStrategy) {
+			((PonderingStrategy) strategy).stopPondering();
+		}
+	}
+
+	/**
+	 * Close the other strategy, if it can be closed, but not the book.
+	 */
+	@Override
+	public void close() {
+		if (!(strategy instanceof AutoCloseable)) {
+			return;
+		}
+		try {
+			((AutoCloseable) strategy).close();
+		} catch (Exception e) {
+			throw new IllegalStateException("closing " + strategy.getClass().getName() + " failed", e);
+		}
+	}
+
+	/**
+	 * @param board         the Reversi board to play on
+	 * @return              the book move, or null if the book has no legal move
+	 *                      for the board
+	 */
+	private Square bookSquare(Board board) {
+		Square square = book.getMove(board, minGames);
+		//a different position with the same key could give a move that is not legal here
+		return square != null && board.getCurrentPossibleSquares().contains(square) ? square : null;
+	}
+
+}
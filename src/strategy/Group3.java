@@ -1,223 +1,159 @@
 package strategy;
-import java.util.*;
 import reversi.*;
 
 /**
- * Uses the Alpha-Beta MiniMax algorithm to play a move in a game of Reversi.
+ * Uses principal variation search, a form of Alpha-Beta NegaMax, to play a move
+ * in a game of Reversi. Deepens one ply at a time for as long as the move
+ * deadline allows, on as many threads as it is given, and solves the game
+ * exactly near its end. Boards are scored by the squares each player owns
+ * and by their stable discs, unless it is given another {@link Evaluator},
+ * such as a {@link PatternEvaluator} with trained weights. With its own
+ * evaluator the search is selective, see {@link ProbCut}. While the opponent
+ * thinks, it searches the opponent's replies in the background, so that its
+ * next search starts from their results.
+ * See {@link SearchEngine}.
  */
-public class Group3 implements Strategy {
-
-	private static double maxDepth;
-	private int[][] scoreBoard = {
-			{100, -5, 20, 5, 5, 20, -5, 100},
-			{-5, -20, 1, 1, 1, 1, -20, -5},
-			{20, 1, 10, 2, 2, 10, 1, 20},
-			{5, 1, 2, 0, 0, 2, 1, 5},
-			{5, 1, 2, 0, 0, 2, 1, 5},
-			{20, 1, 10, 2, 2, 10, 1, 20},
-			{-5, -20, 1, 1, 1, 1, -20, -5},
-			{100, -5, 20, 5, 5, 20, -5, 100}};
-
-	
-	@Override
-	public Square chooseSquare(Board board) {
-		//look four moves ahead
-		Node choose = run(board, 4);
-		return choose.square;
+public class Group3 implements TimedStrategy, PonderingStrategy, AutoCloseable {
+
+	private final SearchEngine engine;
+
+	//whether the engine scores boards the default way, for which new ProbCut()
+	//was fitted
+	private final boolean defaultEvaluator;
+
+	/**
+	 * Creates a single threaded strategy with a 16 megabyte transposition table.
+	 */
+	public Group3() {
+		this(16, 1);
 	}
 
-	
 	/**
-	 * Execute the algorithm.
-	 * @param board         the Reversi board to play on
-	 * @param maxDepth      the maximum depth
+	 * Creates a single threaded strategy.
+	 * @param tableMegabytes the memory budget of the transposition table
 	 */
-	private Node run (Board board, double maxDepth) {
-		if (maxDepth < 1) {
-			throw new IllegalArgumentException("Maximum depth must be greater than 0.");
-		}
+	public Group3(int tableMegabytes) {
+		this(tableMegabytes, 1);
+	}
 
-		Group3.maxDepth = maxDepth;
-		return miniMax(board, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	/**
+	 * Creates the strategy.
+	 * @param tableMegabytes the memory budget of the transposition table
+	 * @param threads        the number of threads to search with
+	 */
+	public Group3(int tableMegabytes, int threads) {
+		this.engine = new SearchEngine(new StabilityEvaluator(new PositionalEvaluator()), tableMegabytes, threads);
+		this.defaultEvaluator = true;
+		//the default ProbCut parameters were fitted for this evaluator
+		setSelective(true);
 	}
-	
 
 	/**
-	 * The meat of the algorithm.
-	 * @param board         the Reversi board to play on
-	 * @param currentDepth  the current depth
-	 * @return              the best move and the score of the new board if we take that move
+	 * Creates the strategy with another way of scoring boards. The search is not
+	 * selective unless given ProbCut parameters fitted for the evaluator, since
+	 * selectivity depends on it.
+	 * @param evaluator      scores the boards the search reaches
+	 * @param tableMegabytes the memory budget of the transposition table
+	 * @param threads        the number of threads to search with
 	 */
-	private  Node miniMax (Board board, int currentDepth, double alpha, double beta) {
-		if (currentDepth++ == maxDepth || board.isComplete()) {
-			Node current = new Node(null, score(board));
-			return current;
-		}
-		if (board.getCurrentPlayer() == Player.BLACK) {
-			return getMax(board, currentDepth, alpha, beta);
-		} else {
-			return getMin(board, currentDepth, alpha, beta);
-		}
+	public Group3(Evaluator evaluator, int tableMegabytes, int threads) {
+		this.engine = new SearchEngine(evaluator, tableMegabytes, threads);
+		this.defaultEvaluator = false;
+	}
 
+	@Override
+	public Square chooseSquare(Board board) {
+		//look four moves ahead
+		return chooseSquare(board, 4);
 	}
-	
 
 	/**
-	 * Play the move with the highest score.
+	 * Search exactly the given number of moves ahead, however long it takes.
 	 * @param board         the Reversi board to play on
-	 * @param currentDepth  the current depth
-	 * @return              the best move and the score of the new board if we take that move
+	 * @param depth         the number of moves to look ahead
+	 * @return              the best move found
 	 */
-	private Node getMax (Board board, int currentDepth, double alpha, double beta) {
-		Square bestMove = new Square(-1, -1);
-		Set<Square> currentPossibleSquares = board.getCurrentPossibleSquares();
-		//if there is no move, return 1000 as the score to make sure that it will not be chosen
-		if(currentPossibleSquares.size() == 0)
-			return new Node(bestMove, 1000);
-
-		for (Square theMove : currentPossibleSquares) {
-
-			Board newBoard = board.play(theMove);
-			Node current = miniMax(newBoard, currentDepth, alpha, beta);
-
-			if(current.score > alpha) {
-				alpha = current.score;
-				bestMove = theMove;
-			}
-
-			//if there is a corner, we will take the corner instead of other moves
-			int row = theMove.getRow();
-			int column = theMove.getColumn();
-			if((row == 0 && column == 0 ) || (row == 0 && column == 7) || (row == 7 && column == 0) || (row == 7 && column == 7)) {
-				break;
-			}
-			
-			//alpha-beta pruning 
-			if(alpha >= beta)
-				break;
-		}
+	public Square chooseSquare(Board board, int depth) {
+		return engine.search(board, depth);
+	}
 
-		return new Node(bestMove, alpha);
+	/**
+	 * Set how many empty squares are left when the timed search starts solving
+	 * the game exactly. With a few more, it only solves whether the game is won.
+	 * @param endgameEmpties the number of empty squares, or 0 never to solve the game
+	 */
+	public void setEndgameEmpties(int endgameEmpties) {
+		engine.setEndgameEmpties(endgameEmpties);
 	}
 
-	
 	/**
-	 * Play the move with the lowest score.
-	 * @param board         the Reversi board to play on
-	 * @param currentDepth  the current depth
-	 * @return              the best move and the score of the new board if we take that move
+	 * Turn selective search on or off. Selective search skips moves that shallow
+	 * searches predict will not matter, which reaches deeper in the same time,
+	 * but can miss a move a full width search would find. The default parameters
+	 * only fit the default evaluator; with another, use
+	 * {@link #setSelective(ProbCut)} with parameters fitted for it.
+	 * @param selective      true to use Multi-ProbCut, false to search every move
 	 */
-	private Node getMin (Board board, int currentDepth, double alpha, double beta) {
-		Square bestMove = new Square(-1, -1);
-		Set<Square> currentPossibleSquares = board.getCurrentPossibleSquares();
-		//if there is no move, return -1000 as the score to make sure that it will not be chosen
-		if(currentPossibleSquares.size() == 0)
-			return new Node(bestMove, -1000);
-		
-		for (Square theMove : currentPossibleSquares) {
-
-			Board newBoard = board.play(theMove);
-			Node current = miniMax(newBoard, currentDepth, alpha, beta);
-
-			if(current.score < beta) {
-				beta = current.score;
-				bestMove = theMove;
-			}
-			
-			//if there is a corner, we will take the corner instead of other moves
-			int row = theMove.getRow();
-			int column = theMove.getColumn();
-			if((row == 0 && column == 0 ) || (row == 0 && column == 7) || (row == 7 && column == 0) || (row == 7 && column == 7)) {
-				break;
-			}
-			
-			//alpha-beta pruning 
-			if(alpha >= beta)
-				break;
+	public void setSelective(boolean selective) {
+		if (selective && !defaultEvaluator) {
+			throw new IllegalStateException("The default ProbCut parameters were not fitted for this evaluator.");
 		}
-		return new Node(bestMove, beta);
+		engine.setProbCut(selective ? new ProbCut() : null);
 	}
 
-	
 	/**
-	 * Get the score of the board.
-	 * @param board         the Reversi board to play on
-	 * @return              the best move and the score of the new board if we take that move
+	 * Turn selective search on with the given parameters, or off.
+	 * @param probCut        Multi-ProbCut parameters fitted for this strategy's
+	 *                       evaluator, for instance by ProbCutFitter, or null to
+	 *                       search every move
 	 */
-	private int score (Board board) {
-		//if board complete, and the black wins, we return a integer.max_value to indicate that
-		if (board.isComplete() && board.getWinner() == Player.BLACK) {
-			return Integer.MAX_VALUE;
-		} 
-		//if board complete, and the white wins, we return a integer.min_value to indicate that
-		else if (board.isComplete() && board.getWinner() == Player.WHITE) {
-			return Integer.MIN_VALUE;
-		} 
-		//if board not complete, we will calculate the score for the current board
-		else {
-			return currentScore(board);
-		}
+	public void setSelective(ProbCut probCut) {
+		engine.setProbCut(probCut);
 	}
 
-	
 	/**
-	 * This is a helper score method to calculate score while it is not the end
-	 * @param board
-	 * @return the current score of the board
+	 * Get what the searches have done, to read directly or to register for JMX.
+	 * @return              the statistics of this strategy's searches
 	 */
-	private int currentScore(Board board) {
-		//the difference between the number of black chesses and the number of white chesses
-		Map<Player, Integer> currentM = board.getPlayerSquareCounts();
-		int blackCount = currentM.get(Player.BLACK);
-		int whiteCount = currentM.get(Player.WHITE);
-		int score = (blackCount-whiteCount);
-
-		//the positional score of chesses on the board
-		int whiteScore = 0;
-		int blackScore = 0;
-		Map<Square, Player> PlayerSqr = board.getSquareOwners();
-
-		Set<Square> AllSqr = PlayerSqr.keySet();
-		for(Square sqr: AllSqr) {
-			if(PlayerSqr.get(sqr) == Player.BLACK) {
-				//how many positional score black chess has gained
-				blackScore += scoreBoard[sqr.getRow()][sqr.getColumn()];
-			}
-			else {
-				//how many positional score white chess has gained
-				whiteScore += scoreBoard[sqr.getRow()][sqr.getColumn()];
-			}
-		}
+	public SearchStatistics getStatistics() {
+		return engine.getStatistics();
+	}
 
-		//opening game, flip less cheese but gain more good position
-		if (blackCount+whiteCount <= 50) {
-			return blackScore - whiteScore - score;
-		}
-		//endGame, flip more chesses at the end
-		else {
-			return blackScore - whiteScore + score;
-		}
+	/**
+	 * Turn counting what the searches do on or off.
+	 * @param statistics     where to count the searches, or null not to count them
+	 */
+	public void setStatistics(SearchStatistics statistics) {
+		engine.setStatistics(statistics);
 	}
 
-	
 	/**
-	 * A private class contains a square, and the score that will get if make that move
-	 *
+	 * Search one ply deeper at a time until the time runs out, and play the best
+	 * move of the deepest search that finished.
+	 * @param board         the Reversi board to play on
+	 * @param deadline      the System.nanoTime() by which we must choose
 	 */
-	private class Node{
-		Square square;
-		double score;
-
-		/**
-		 * Node Class Constructor
-		 * @param square
-		 * @param score the score that will get if make that move
-		 */
-		private Node(Square square, double score) {
-			this.square = square;
-			this.score = score;
-		}
+	@Override
+	public Square chooseSquare(Board board, long deadline) {
+		return engine.search(board, deadline);
+	}
+
+	@Override
+	public void startPondering(Board board) {
+		engine.startPondering(board);
+	}
 
+	@Override
+	public void stopPondering() {
+		engine.stopPondering();
+	}
+
+	/**
+	 * Release the search's helper threads. The strategy must not be used again.
+	 */
+	@Override
+	public void close() {
+		engine.close();
 	}
 
 }
\ No newline at end of file
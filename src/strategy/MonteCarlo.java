@@ -0,0 +1,350 @@
+package strategy;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import reversi.Board;
+import reversi.Player;
+import reversi.Playout;
+import reversi.SearchBoard;
+import reversi.Square;
+import reversi.TimedStrategy;
+
+/**
+ * Uses Monte Carlo tree search (UCT) to play a move in a game of Reversi. Each
+ * iteration walks down the tree, choosing moves by their win rate plus a bonus
+ * for being little explored, adds the children of the position it stops at,
+ * plays the rest of the game at random and counts the result in every position
+ * on the way. The move played is the one explored most.
+ * <p>
+ * The tree is kept in arrays indexed by node rather than in objects, and all
+ * threads walk it at once. Node statistics are updated atomically without
+ * locks, and each thread counts a loss in the nodes it walks through until its
+ * game is finished (a virtual loss), so that the other threads spread out over
+ * other moves. After the opponent replies, the part of the tree below the
+ * reply is kept for the next move. With more than one thread, the strategy
+ * keeps its helper threads between moves, so it should be closed once it is
+ * no longer needed.
+ */
+public class MonteCarlo implements TimedStrategy, AutoCloseable {
+
+	//how much the choice of move favours moves explored less
+	private static final double EXPLORATION = 1.0;
+
+	//the number of games played without a deadline
+	private static final int DEFAULT_PLAYOUTS = 20000;
+
+	private static final int DEFAULT_NODES = 1 << 20;
+
+	//the move of a node that passes
+	private static final int PASS = 64;
+
+	private final int threads;
+	private final int capacity;
+	private final ExecutorService helpers;
+
+	//for each node: the index of its first child, 0 if it has not been expanded
+	//and -1 while it is being expanded or if it cannot be; its number of
+	//children; the move that led to it; how often it was walked through, and the
+	//games won there, in half points, by the player who made that move
+	private final AtomicIntegerArray children;
+	private final byte[] childCounts;
+	private final byte[] moves;
+	private final AtomicIntegerArray visits;
+	private final AtomicIntegerArray wins;
+	private final AtomicInteger size = new AtomicInteger();
+
+	private int root;
+	private Board rootBoard;
+
+	/**
+	 * Creates a single threaded strategy.
+	 */
+	public MonteCarlo() {
+		this(1);
+	}
+
+	/**
+	 * Creates the strategy with room for about a million positions in its tree.
+	 * @param threads        the number of threads to play games on
+	 */
+	public MonteCarlo(int threads) {
+		this(threads, DEFAULT_NODES);
+	}
+
+	/**
+	 * Creates the strategy.
+	 * @param threads        the number of threads to play games on
+	 * @param maxNodes       the most positions the tree can hold
+	 */
+	public MonteCarlo(int threads, int maxNodes) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be greater than 0.");
+		}
+		if (maxNodes < 65) {
+			throw new IllegalArgumentException("The tree must have room for at least 65 nodes.");
+		}
+		this.threads = threads;
+		this.capacity = maxNodes;
+		this.helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1,
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("MonteCarlo-helper-%d").build());
+		children = new AtomicIntegerArray(maxNodes);
+		childCounts = new byte[maxNodes];
+		moves = new byte[maxNodes];
+		visits = new AtomicIntegerArray(maxNodes);
+		wins = new AtomicIntegerArray(maxNodes);
+	}
+
+	@Override
+	public Square chooseSquare(Board board) {
+		return search(board, Long.MAX_VALUE, DEFAULT_PLAYOUTS);
+	}
+
+	/**
+	 * Play games until most of the time is used, and play the move explored most.
+	 * @param board         the Reversi board to play on
+	 * @param deadline      the System.nanoTime() by which we must choose
+	 */
+	@Override
+	public Square chooseSquare(Board board, long deadline) {
+		long now = System.nanoTime();
+		long stop = now + (deadline - now) * 4 / 5 - TimeUnit.MILLISECONDS.toNanos(20);
+		return search(board, stop, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Release the helper threads, once any running search has finished. The
+	 * strategy must not be used again.
+	 */
+	@Override
+	public synchronized void close() {
+		if (helpers != null) {
+			helpers.shutdown();
+		}
+	}
+
+	/**
+	 * Play games on all threads until the stop time or the number of games is
+	 * reached.
+	 * @param board         the Reversi board to play on
+	 * @param stop          the System.nanoTime() at which to stop
+	 * @param playouts      the most games to play
+	 * @return              the move explored most
+	 */
+	private synchronized Square search(final Board board, final long stop, int playouts) {
+		reuse(board);
+		if (children.get(root) == 0) {
+			expand(root, new SearchBoard(board));
+		}
+		if (childCounts[root] == 0) {
+			//the game is over, or the tree could not be expanded
+			return board.getCurrentPossibleSquares().isEmpty() ? Square.PASS
+					: board.getCurrentPossibleSquares().iterator().next();
+		}
+
+		final AtomicInteger remaining = new AtomicInteger(playouts);
+		List<Future<?>> running = Lists.newArrayList();
+		for (int i = 1; i < threads; ++i) {
+			running.add(helpers.submit(new Runnable() {
+				@Override
+				public void run() {
+					playGames(board, stop, remaining);
+				}
+			}));
+		}
+		playGames(board, stop, remaining);
+		for (Future<?> future : running) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("helper search failed", e.getCause());
+			}
+		}
+
+		int best = children.get(root);
+		for (int child = best + 1; child < children.get(root) + childCounts[root]; ++child) {
+			if (visits.get(child) > visits.get(best)) {
+				best = child;
+			}
+		}
+		return moves[best] == PASS ? Square.PASS : Square.fromIndex(moves[best]);
+	}
+
+	/**
+	 * Play games from the root until the stop time or until no games remain.
+	 * @param board         the board at the root
+	 * @param stop          the System.nanoTime() at which to stop
+	 * @param remaining     the number of games still to play, shared by the threads
+	 */
+	private void playGames(Board board, long stop, AtomicInteger remaining) {
+		SearchBoard position = new SearchBoard(board);
+		Playout playout = new Playout();
+		int[] path = new int[128];
+		while (remaining.getAndDecrement() > 0 && System.nanoTime() < stop) {
+			//walk down the tree, counting a loss in each node until the game is over
+			int length = 0;
+			int node = root;
+			visits.incrementAndGet(node);
+			path[length++] = node;
+			while (true) {
+				int first = children.get(node);
+				if (first == 0 && visits.get(node) > 1) {
+					expand(node, position);
+					first = children.get(node);
+				}
+				if (first <= 0) {
+					break;
+				}
+				node = select(node, first, childCounts[node]);
+				visits.incrementAndGet(node);
+				path[length++] = node;
+				if (moves[node] == PASS) {
+					position.pass();
+				} else {
+					position.play(moves[node]);
+				}
+			}
+
+			//finish the game at random, and count the result for the player who made
+			//the move of each node
+			int result = -playout.play(position.getPlayerDiscs(), position.getOpponentDiscs());
+			for (int i = length - 1; i >= 0; --i) {
+				wins.addAndGet(path[i], result > 0 ? 2 : result == 0 ? 1 : 0);
+				result = -result;
+			}
+			while (position.getPly() > 0) {
+				position.undo();
+			}
+		}
+	}
+
+	/**
+	 * Choose the child to walk to, by upper confidence bound. Children that have
+	 * not been walked through are chosen first.
+	 * @param node          the node to choose a child of
+	 * @param first         the index of its first child
+	 * @param count         its number of children
+	 * @return              the index of the chosen child
+	 */
+	private int select(int node, int first, int count) {
+		double logVisits = Math.log(Math.max(visits.get(node), 1));
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < first + count; ++child) {
+			int childVisits = visits.get(child);
+			if (childVisits == 0) {
+				return child;
+			}
+			double value = wins.get(child) / (2.0 * childVisits) + EXPLORATION * Math.sqrt(logVisits / childVisits);
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Add the children of a node, unless another thread is already doing so, the
+	 * game is over or the tree is full.
+	 * @param node          the node to expand
+	 * @param position      the board at the node
+	 */
+	private void expand(int node, SearchBoard position) {
+		if (!children.compareAndSet(node, 0, -1)) {
+			return;
+		}
+		long possible = position.getPossibleMoves();
+		if (possible == 0L && position.getOpponentPossibleMoves() == 0L) {
+			return;
+		}
+		int count = possible == 0L ? 1 : Long.bitCount(possible);
+		int first = size.getAndAdd(count);
+		if (first + count > capacity) {
+			return;
+		}
+		for (int i = 0; i < count; ++i) {
+			int move = possible == 0L ? PASS : Long.numberOfTrailingZeros(possible);
+			possible &= possible - 1;
+			children.set(first + i, 0);
+			childCounts[first + i] = 0;
+			moves[first + i] = (byte) move;
+			visits.set(first + i, 0);
+			wins.set(first + i, 0);
+		}
+		childCounts[node] = (byte) count;
+		//publishing the first child makes the children visible to other threads
+		children.set(node, first);
+	}
+
+	/**
+	 * Make the node of the given board the root, if it is a child or grandchild of
+	 * the last root and the tree has room to grow, otherwise start a new tree.
+	 * @param board         the board to search from
+	 */
+	private void reuse(Board board) {
+		int node = find(board);
+		if (node < 0 || size.get() > capacity / 2) {
+			size.set(1);
+			node = 0;
+			children.set(0, 0);
+			childCounts[0] = 0;
+			moves[0] = PASS;
+			visits.set(0, 0);
+			wins.set(0, 0);
+		}
+		root = node;
+		rootBoard = board;
+	}
+
+	/**
+	 * @param board         the board to look for
+	 * @return              the index of the node of the board among the root, its
+	 *                      children and its grandchildren, or -1 if there is none
+	 */
+	private int find(Board board) {
+		if (rootBoard == null) {
+			return -1;
+		}
+		if (same(rootBoard, board)) {
+			return root;
+		}
+		int first = children.get(root);
+		for (int child = first; first > 0 && child < first + childCounts[root]; ++child) {
+			Board next = play(rootBoard, moves[child]);
+			if (same(next, board)) {
+				return child;
+			}
+			int firstGrandchild = children.get(child);
+			for (int grandchild = firstGrandchild; firstGrandchild > 0
+					&& grandchild < firstGrandchild + childCounts[child]; ++grandchild) {
+				if (same(play(next, moves[grandchild]), board)) {
+					return grandchild;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static Board play(Board board, int move) {
+		return move == PASS ? board.pass() : board.play(Square.fromIndex(move));
+	}
+
+	private static boolean same(Board a, Board b) {
+		return a.getCurrentPlayer() == b.getCurrentPlayer()
+				&& a.getDiscs(Player.BLACK) == b.getDiscs(Player.BLACK)
+				&& a.getDiscs(Player.WHITE) == b.getDiscs(Player.WHITE);
+	}
+
+}
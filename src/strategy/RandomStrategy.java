@@ -1,9 +1,8 @@
 package strategy;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import reversi.Board;
 import reversi.Square;
@@ -21,15 +20,19 @@ public class RandomStrategy implements Strategy {
   }
 
   /**
-   * A simple utility method for selecting a random item from a set. Not
-   * particularly efficient.
+   * A simple utility method for selecting a random item from a set, using the
+   * current thread's random number generator and without copying the set. For
+   * playing whole games at random, {@link reversi.Playout} is much faster.
    * 
    * @param itemSet
    *          The set of items from which to select.
    * @return A random item from the set.
    */
   public static <T> T chooseOne(Set<T> itemSet) {
-    List<T> itemList = new ArrayList<>(itemSet);
-    return itemList.get(new Random().nextInt(itemList.size()));
+    Iterator<T> items = itemSet.iterator();
+    for (int skip = ThreadLocalRandom.current().nextInt(itemSet.size()); skip > 0; --skip) {
+      items.next();
+    }
+    return items.next();
   }
 }